@@ -8,11 +8,14 @@ package org.texastorque.torquelib.auto;
 
 import java.util.HashMap;
 import java.util.Optional;
+import java.util.Set;
 
 import org.texastorque.torquelib.auto.sequences.TorqueEmpty;
+import org.texastorque.torquelib.util.TorqueTime;
 import org.texastorque.torquelib.util.TorqueUtil;
 
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
@@ -43,7 +46,15 @@ public abstract class TorqueAutoManager {
 
     private final String autoSelectorKey = "Auto List";
 
-    protected final TorquePathLoader pathLoader = new TorquePathLoader();
+    private final String autoReadyKey = "Auto Ready";
+    private final String autoPreparedKey = "Auto Prepared";
+
+    // What prepareSelectedSequence last prepared, so it only does work on a change.
+    private String preparedChoice;
+    private Optional<Alliance> preparedAlliance = Optional.empty();
+    private TorqueSequence preparedSequence;
+
+    protected final TorquePathLoader pathLoader = TorquePathLoader.getShared();
 
     protected TorqueAutoManager() { this(true); }
 
@@ -79,6 +90,51 @@ public abstract class TorqueAutoManager {
 
         resetCurrentSequence();
         sequenceEnded = false;
+
+        if (TorqueAutoProfiler.isEnabled()) TorqueAutoProfiler.begin(autoChoice);
+
+        // Anything not already prepared while disabled is prepared lazily by the commands themselves.
+        if (currentSequence != preparedSequence) SmartDashboard.putBoolean(autoReadyKey, false);
+    }
+
+    /**
+     * Watch the selector and alliance while disabled and resolve, reset and
+     * prepare the chosen sequence whenever either changes, so that
+     * autonomousInit has nothing expensive left to do.
+     */
+    public final void prepareSelectedSequence() {
+        final String autoChoice = autoSelector.getSelected();
+        final Optional<Alliance> alliance = DriverStation.getAlliance();
+
+        // Hot reloaded paths are swapped in here, between cycles, and force the auto to be prepared again.
+        final Set<String> reloaded = pathLoader.applyReloads();
+        if (!reloaded.isEmpty()) {
+            System.out.println("Reloaded paths " + reloaded);
+            preparedSequence = null;
+        }
+
+        if (preparedSequence != null && alliance.equals(preparedAlliance)
+                && (constAuto.isPresent() || (autoChoice != null && autoChoice.equals(preparedChoice))))
+            return;
+
+        final TorqueSequence sequence = constAuto.orElse(autoSequences.get(autoChoice));
+        if (sequence == null) {
+            SmartDashboard.putBoolean(autoReadyKey, false);
+            return;
+        }
+
+        final double start = TorqueTime.live();
+        sequence.reset();
+        // Paths the sequence pulls from the loader while preparing are pinned against eviction.
+        pathLoader.pinAccessed(sequence::prepare);
+
+        preparedChoice = autoChoice;
+        preparedAlliance = alliance;
+        preparedSequence = sequence;
+
+        SmartDashboard.putBoolean(autoReadyKey, true);
+        SmartDashboard.putString(autoPreparedKey, String.format("%s (%s) in %.0f ms", autoChoice,
+                alliance.map(Alliance::name).orElse("No Alliance"), (TorqueTime.live() - start) * 1000));
     }
 
     private Optional<TorqueSequence> constAuto = Optional.empty();
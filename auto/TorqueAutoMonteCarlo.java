@@ -0,0 +1,371 @@
+/**
+ * Copyright 2011-2023 Texas Torque.
+ *
+ * This file is part of TorqueLib, which is licensed under the MIT license.
+ * For more details, see ./license.txt or write <jus@justusl.com>.
+ */
+package org.texastorque.torquelib.auto;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.texastorque.torquelib.auto.commands.TorqueFollowPath.TorquePathingDrivebase;
+import org.texastorque.torquelib.base.TorqueRobotBase;
+import org.texastorque.torquelib.swerve.TorqueSwerveSpeeds;
+import org.texastorque.torquelib.util.TorqueClock;
+import org.texastorque.torquelib.util.TorqueTime;
+
+import com.pathplanner.lib.config.PIDConstants;
+import com.pathplanner.lib.util.DriveFeedforwards;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.trajectory.Trajectory;
+
+/**
+ * Runs a TorqueSequence headlessly many times in parallel with injected noise
+ * and reports the distribution of completion time and final pose error.
+ *
+ * Every run gets its own TorqueAutoTrial (a fresh sequence and a fresh
+ * simulated drivebase) and its own simulated clock, bound through TorqueTime
+ * to the worker thread, so runs never share state and the work spreads over
+ * every core of the host. TorqueAutoProfiler does not record while a
+ * simulated clock is bound.
+ *
+ * The harness injects timing jitter into the cycle period itself. Odometry
+ * drift and actuator latency are injected by the drivebase returned from
+ * Disturbance.apply, and gain error by Disturbance.scale on the follower's
+ * gains (see TorqueFollowPath.withGains), so a trial only has to route its
+ * drivebase and gains through the disturbance.
+ *
+ * Part of the Texas Torque Autonomous Framework.
+ */
+public final class TorqueAutoMonteCarlo {
+    /**
+     * Magnitudes of the noise injected into each run. Each run samples its own
+     * disturbance from these magnitudes.
+     */
+    public static final class Noise {
+        public final double odometryDrift;     // meters per second (std dev)
+        public final double actuatorLatency;   // seconds (max, uniform)
+        public final double gainError;         // fraction of nominal (std dev)
+        public final double timingJitter;      // seconds per cycle (std dev)
+
+        public Noise(final double odometryDrift, final double actuatorLatency, final double gainError,
+                final double timingJitter) {
+            this.odometryDrift = odometryDrift;
+            this.actuatorLatency = actuatorLatency;
+            this.gainError = gainError;
+            this.timingJitter = timingJitter;
+        }
+
+        public static Noise none() { return new Noise(0, 0, 0, 0); }
+    }
+
+    /**
+     * The disturbance sampled for a single run, handed to the trial factory.
+     */
+    public static final class Disturbance {
+        public final double odometryDriftX, odometryDriftY; // meters per second
+        public final double actuatorLatency;                // seconds
+        public final double gainScale;                      // multiplier on path-following gains
+        private final double timingJitter;
+        private final SplittableRandom random;
+        private final ArrayList<DisturbedDrivebase> drivebases = new ArrayList<DisturbedDrivebase>();
+
+        private Disturbance(final Noise noise, final SplittableRandom random) {
+            this.random = random;
+            this.odometryDriftX = gaussian(random) * noise.odometryDrift;
+            this.odometryDriftY = gaussian(random) * noise.odometryDrift;
+            this.actuatorLatency = random.nextDouble() * noise.actuatorLatency;
+            this.gainScale = 1 + gaussian(random) * noise.gainError;
+            this.timingJitter = noise.timingJitter;
+        }
+
+        /**
+         * @return The random source for this run, for trials that want extra noise.
+         */
+        public SplittableRandom getRandom() { return random; }
+
+        /**
+         * Wrap the simulated drivebase so the commands see drifting odometry
+         * and their speeds reach the drivebase actuatorLatency late. Pass the
+         * result to the commands of the trial's sequence.
+         */
+        public TorquePathingDrivebase apply(final TorquePathingDrivebase drivebase) {
+            final DisturbedDrivebase disturbed = new DisturbedDrivebase(drivebase, this);
+            drivebases.add(disturbed);
+            return disturbed;
+        }
+
+        /**
+         * @return The gains scaled by this run's gain error, for TorqueFollowPath.withGains.
+         */
+        public PIDConstants scale(final PIDConstants gains) {
+            return new PIDConstants(gains.kP * gainScale, gains.kI * gainScale, gains.kD * gainScale, gains.iZone);
+        }
+
+        // Deliver the speeds that are due by now.
+        private void update() {
+            for (final DisturbedDrivebase drivebase : drivebases) drivebase.update();
+        }
+
+        private double nextPeriod() {
+            return Math.max(0, TorqueRobotBase.PERIOD + gaussian(random) * timingJitter);
+        }
+    }
+
+    private static final class PendingSpeeds {
+        private final double time;
+        private final TorqueSwerveSpeeds speeds;
+
+        private PendingSpeeds(final double time, final TorqueSwerveSpeeds speeds) {
+            this.time = time;
+            this.speeds = speeds;
+        }
+    }
+
+    private static final class DisturbedDrivebase implements TorquePathingDrivebase {
+        private final TorquePathingDrivebase drivebase;
+        private final Disturbance disturbance;
+        private final ArrayDeque<PendingSpeeds> pending = new ArrayDeque<PendingSpeeds>();
+        private double driftStart = TorqueTime.now();
+
+        private DisturbedDrivebase(final TorquePathingDrivebase drivebase, final Disturbance disturbance) {
+            this.drivebase = drivebase;
+            this.disturbance = disturbance;
+        }
+
+        private void update() {
+            final double now = TorqueTime.now();
+            while (!pending.isEmpty() && pending.peek().time <= now) drivebase.setInputSpeeds(pending.poll().speeds);
+        }
+
+        @Override
+        public Pose2d getPose() {
+            final double elapsed = TorqueTime.now() - driftStart;
+            final Pose2d pose = drivebase.getPose();
+            return new Pose2d(pose.getTranslation().plus(new Translation2d(disturbance.odometryDriftX * elapsed,
+                    disturbance.odometryDriftY * elapsed)), pose.getRotation());
+        }
+
+        @Override
+        public void setPose(final Pose2d pose) {
+            drivebase.setPose(pose);
+            driftStart = TorqueTime.now();
+        }
+
+        @Override
+        public void setInputSpeeds(final TorqueSwerveSpeeds speeds) {
+            pending.add(new PendingSpeeds(TorqueTime.now() + disturbance.actuatorLatency, speeds));
+            update();
+        }
+
+        @Override
+        public ChassisSpeeds getActualChassisSpeeds() { return drivebase.getActualChassisSpeeds(); }
+
+        @Override
+        public void onBeginPathing() { drivebase.onBeginPathing(); }
+
+        @Override
+        public void onEndPathing() { drivebase.onEndPathing(); }
+
+        @Override
+        public double getRadius() { return drivebase.getRadius(); }
+
+        @Override
+        public double getMaxPathingVelocity() { return drivebase.getMaxPathingVelocity(); }
+
+        @Override
+        public void setCurrentTrajectory(final Trajectory trajectory) { drivebase.setCurrentTrajectory(trajectory); }
+
+        @Override
+        public void setPathFeedforwards(final DriveFeedforwards feedforwards) {
+            drivebase.setPathFeedforwards(feedforwards);
+        }
+    }
+
+    /**
+     * One independent simulated world: a sequence and the plant it drives.
+     */
+    public static interface TorqueAutoTrial {
+        public TorqueSequence getSequence();
+
+        /**
+         * Advance the simulated plant (drivebase, mechanisms) by dt seconds.
+         */
+        public void step(final double dt);
+
+        public Pose2d getPose();
+
+        public Pose2d getTargetPose();
+    }
+
+    @FunctionalInterface
+    public static interface TorqueAutoTrialFactory {
+        public TorqueAutoTrial create(final Disturbance disturbance);
+    }
+
+    /**
+     * The distributions produced by an evaluation.
+     */
+    public static final class Result {
+        public final String name;
+        public final double[] completionTimes; // sorted, NaN runs excluded
+        public final double[] poseErrors;      // sorted
+        public final int runs, timeouts;
+
+        private Result(final String name, final double[] times, final double[] errors, final int timeouts) {
+            this.name = name;
+            this.runs = times.length;
+            this.timeouts = timeouts;
+            this.completionTimes = Arrays.stream(times).filter(t -> !Double.isNaN(t)).sorted().toArray();
+            this.poseErrors = errors.clone();
+            Arrays.sort(this.poseErrors);
+        }
+
+        public final double timeoutRate() { return runs == 0 ? 0 : timeouts / (double)runs; }
+
+        public final double meanTime() { return mean(completionTimes); }
+
+        public final double meanError() { return mean(poseErrors); }
+
+        public final double timePercentile(final double p) { return percentile(completionTimes, p); }
+
+        public final double errorPercentile(final double p) { return percentile(poseErrors, p); }
+
+        @Override
+        public final String toString() {
+            return String.format(
+                    "%s: %d runs, %.1f%% timed out | time mean %.2fs p50 %.2fs p95 %.2fs | error mean %.3fm p50 %.3fm p95 %.3fm",
+                    name, runs, timeoutRate() * 100, meanTime(), timePercentile(.5), timePercentile(.95),
+                    meanError(), errorPercentile(.5), errorPercentile(.95));
+        }
+
+        private static double mean(final double[] values) {
+            if (values.length == 0) return Double.NaN;
+            double sum = 0;
+            for (final double value : values) sum += value;
+            return sum / values.length;
+        }
+
+        private static double percentile(final double[] sorted, final double p) {
+            if (sorted.length == 0) return Double.NaN;
+            return sorted[(int)Math.min(sorted.length - 1, Math.max(0, Math.ceil(p * sorted.length) - 1))];
+        }
+    }
+
+    private static final int RUNS_PER_TASK = 4;
+
+    private final int runs;
+    private final double timeLimit;
+    private final Noise noise;
+    private final long seed;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param runs Number of runs per evaluation.
+     * @param timeLimit Simulated seconds before a run counts as timed out.
+     * @param noise The noise magnitudes.
+     * @param seed Seed so evaluations are reproducible.
+     */
+    public TorqueAutoMonteCarlo(final int runs, final double timeLimit, final Noise noise, final long seed) {
+        this(runs, timeLimit, noise, seed, ForkJoinPool.commonPool());
+    }
+
+    public TorqueAutoMonteCarlo(final int runs, final double timeLimit, final Noise noise, final long seed,
+            final ForkJoinPool pool) {
+        this.runs = runs;
+        this.timeLimit = timeLimit;
+        this.noise = noise;
+        this.seed = seed;
+        this.pool = pool;
+    }
+
+    /**
+     * Run the auto produced by the factory runs times across the pool.
+     *
+     * @param name The name of the auto, for the report.
+     * @param factory Creates an independent trial for every run.
+     * @return The distributions of completion time and pose error.
+     */
+    public final Result evaluate(final String name, final TorqueAutoTrialFactory factory) {
+        final double[] times = new double[runs];
+        final double[] errors = new double[runs];
+        final SplittableRandom root = new SplittableRandom(seed);
+        final SplittableRandom[] randoms = new SplittableRandom[runs];
+        for (int i = 0; i < runs; i++) randoms[i] = root.split();
+
+        pool.invoke(new Batch(factory, randoms, times, errors, 0, runs));
+
+        int timeouts = 0;
+        for (final double time : times)
+            if (Double.isNaN(time)) timeouts++;
+        return new Result(name, times, errors, timeouts);
+    }
+
+    private final class Batch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final TorqueAutoTrialFactory factory;
+        private final SplittableRandom[] randoms;
+        private final double[] times, errors;
+        private final int from, to;
+
+        private Batch(final TorqueAutoTrialFactory factory, final SplittableRandom[] randoms, final double[] times,
+                final double[] errors, final int from, final int to) {
+            this.factory = factory;
+            this.randoms = randoms;
+            this.times = times;
+            this.errors = errors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected final void compute() {
+            if (to - from <= RUNS_PER_TASK) {
+                for (int i = from; i < to; i++) simulate(i);
+                return;
+            }
+            final int mid = (from + to) >>> 1;
+            invokeAll(new Batch(factory, randoms, times, errors, from, mid),
+                    new Batch(factory, randoms, times, errors, mid, to));
+        }
+
+        private void simulate(final int run) {
+            final TorqueClock.Simulated clock = new TorqueClock.Simulated();
+            TorqueTime.bind(clock);
+            try {
+                final Disturbance disturbance = new Disturbance(noise, randoms[run]);
+                final TorqueAutoTrial trial = factory.create(disturbance);
+                final TorqueSequence sequence = trial.getSequence();
+                sequence.reset();
+
+                while (!sequence.hasEnded() && clock.getTime() < timeLimit) {
+                    sequence.run();
+                    disturbance.update();
+                    final double dt = disturbance.nextPeriod();
+                    trial.step(dt);
+                    clock.step(dt);
+                }
+
+                times[run] = sequence.hasEnded() ? clock.getTime() : Double.NaN;
+                errors[run] = trial.getPose().getTranslation().getDistance(trial.getTargetPose().getTranslation());
+            } finally {
+                TorqueTime.unbind();
+            }
+        }
+    }
+
+    private static double gaussian(final SplittableRandom random) {
+        // Box-Muller, SplittableRandom has no nextGaussian on Java 17
+        final double u = 1 - random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright 2011-2023 Texas Torque.
+ *
+ * This file is part of TorqueLib, which is licensed under the MIT license.
+ * For more details, see ./license.txt or write <jus@justusl.com>.
+ */
+package org.texastorque.torquelib.auto;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+
+import org.texastorque.torquelib.util.TorqueTime;
+
+/**
+ * Opt-in timing profiler for TorqueCommand.run. When enabled, every command
+ * (including ones nested inside TorqueRunSequence, TorqueSwitch, etc.)
+ * records when it started and stopped and how long its init, continuous and
+ * end calls took. The timeline can be exported after the match as JSON in the
+ * Chrome trace-event format (open in chrome://tracing or ui.perfetto.dev for a
+ * Gantt chart) or as CSV.
+ *
+ * The profiler's state is not synchronized, so it only records on the thread
+ * that enabled it (the robot loop), and never while a simulated clock is
+ * bound through TorqueTime (e.g. TorqueAutoMonteCarlo runs).
+ *
+ * Part of the Texas Torque Autonomous Framework.
+ */
+public final class TorqueAutoProfiler {
+    /**
+     * One execution of one command, from init to end.
+     */
+    public static final class Span {
+        public final String name;
+        public final int depth;           // nesting level, used as the Gantt row
+        public final long wallStart;      // epoch milliseconds
+        public final double start;        // seconds since the session began
+        private double stop = Double.NaN, lastSeen;
+        private long initNanos, continuousNanos, endNanos;
+        private int cycles;
+
+        private Span(final String name, final int depth, final double start) {
+            this.name = name;
+            this.depth = depth;
+            this.wallStart = System.currentTimeMillis();
+            this.start = start;
+            this.lastSeen = start;
+        }
+
+        public final boolean isOpen() { return Double.isNaN(stop); }
+
+        /**
+         * @return When the command ended, or when it was last run if it never did.
+         */
+        public final double getStop() { return isOpen() ? lastSeen : stop; }
+
+        public final double getDuration() { return getStop() - start; }
+
+        public final double getInitTime() { return initNanos / 1e9; }
+
+        public final double getContinuousTime() { return continuousNanos / 1e9; }
+
+        public final double getEndTime() { return endNanos / 1e9; }
+
+        public final int getCycles() { return cycles; }
+    }
+
+    private static final ArrayList<Span> spans = new ArrayList<Span>();
+    private static volatile boolean enabled = false;
+    private static volatile Thread owner = null;
+    private static String session = "auto";
+    private static long origin = System.nanoTime();
+    private static int depth = 0;
+
+    /**
+     * Start recording commands run on the calling thread.
+     */
+    public static final void enable() {
+        owner = Thread.currentThread();
+        enabled = true;
+    }
+
+    public static final void disable() { enabled = false; }
+
+    public static final boolean isEnabled() {
+        return enabled && Thread.currentThread() == owner && TorqueTime.getBound() == null;
+    }
+
+    /**
+     * Throw away recorded spans and start a new timeline.
+     *
+     * @param name The name of the session (usually the auto name), used in export file names.
+     */
+    public static final void begin(final String name) {
+        spans.clear();
+        session = name == null ? "auto" : name;
+        origin = System.nanoTime();
+        depth = 0;
+    }
+
+    public static final boolean hasSpans() { return !spans.isEmpty(); }
+
+    public static final ArrayList<Span> getSpans() { return spans; }
+
+    /**
+     * Find the span that spent the longest between start and stop, which is
+     * usually the block worth optimizing.
+     */
+    public static final Span getLongest() {
+        Span longest = null;
+        for (final Span span : spans)
+            if (longest == null || span.getDuration() > longest.getDuration()) longest = span;
+        return longest;
+    }
+
+    static final void enter() { depth++; }
+
+    static final void exit() { depth--; }
+
+    static final Span open(final TorqueCommand command) {
+        final Span span = new Span(command.getName(), depth - 1, now());
+        spans.add(span);
+        return span;
+    }
+
+    static final void recordInit(final Span span, final long nanos) { span.initNanos += nanos; }
+
+    static final void recordContinuous(final Span span, final long nanos) {
+        span.continuousNanos += nanos;
+        span.cycles++;
+        span.lastSeen = now();
+    }
+
+    static final void recordEnd(final Span span, final long nanos) {
+        span.endNanos += nanos;
+        span.stop = now();
+    }
+
+    /**
+     * Write the timeline as both JSON and CSV into a directory.
+     *
+     * @param directory The directory to write into, created if missing.
+     */
+    public static final void export(final File directory) {
+        directory.mkdirs();
+        final String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        final String base = session.replaceAll("[^A-Za-z0-9_-]", "_") + "-" + stamp;
+        try {
+            exportJson(new File(directory, base + ".json"));
+            exportCsv(new File(directory, base + ".csv"));
+        } catch (final IOException e) {
+            System.out.println("Failed to export auto profile: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Export in the Chrome trace-event format, one complete ("X") event per
+     * span with the nesting depth as the thread row.
+     */
+    public static final void exportJson(final File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(file)) {
+            out.println("{\"traceEvents\":[");
+            for (int i = 0; i < spans.size(); i++) {
+                final Span span = spans.get(i);
+                out.printf("{\"name\":\"%s\",\"ph\":\"X\",\"pid\":1,\"tid\":%d,\"ts\":%.0f,\"dur\":%.0f,"
+                        + "\"args\":{\"init_ms\":%.3f,\"continuous_ms\":%.3f,\"end_ms\":%.3f,\"cycles\":%d,"
+                        + "\"wall_start\":%d,\"ended\":%b}}%s%n",
+                        span.name.replace("\"", "\\\""), span.depth, span.start * 1e6, span.getDuration() * 1e6,
+                        span.getInitTime() * 1e3, span.getContinuousTime() * 1e3, span.getEndTime() * 1e3,
+                        span.cycles, span.wallStart, !span.isOpen(), i < spans.size() - 1 ? "," : "");
+            }
+            out.println("]}");
+        }
+    }
+
+    public static final void exportCsv(final File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(file)) {
+            out.println("name,depth,start_s,stop_s,duration_s,init_ms,continuous_ms,end_ms,cycles,wall_start,ended");
+            for (final Span span : spans)
+                out.printf("%s,%d,%.4f,%.4f,%.4f,%.3f,%.3f,%.3f,%d,%d,%b%n", span.name.replace(",", ";"), span.depth,
+                        span.start, span.getStop(), span.getDuration(), span.getInitTime() * 1e3,
+                        span.getContinuousTime() * 1e3, span.getEndTime() * 1e3, span.cycles, span.wallStart,
+                        !span.isOpen());
+        }
+    }
+
+    private static double now() { return (System.nanoTime() - origin) / 1e9; }
+
+    private TorqueAutoProfiler() {}
+}
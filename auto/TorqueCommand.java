@@ -17,8 +17,11 @@ import org.texastorque.torquelib.auto.sequences.TorqueRunCommand;
  */
 public abstract class TorqueCommand {
     private boolean ended = false, started = false;
+    private TorqueAutoProfiler.Span span;
 
     public final boolean run() {
+        if (TorqueAutoProfiler.isEnabled())
+            return runProfiled();
         if (ended)
             return ended;
         if (!started) {
@@ -33,10 +36,40 @@ public abstract class TorqueCommand {
         return ended;
     }
 
+    private final boolean runProfiled() {
+        if (ended)
+            return ended;
+        TorqueAutoProfiler.enter();
+        try {
+            long start;
+            if (!started || span == null)
+                span = TorqueAutoProfiler.open(this);
+            if (!started) {
+                start = System.nanoTime();
+                init();
+                TorqueAutoProfiler.recordInit(span, System.nanoTime() - start);
+                started = true;
+            }
+            start = System.nanoTime();
+            continuous();
+            TorqueAutoProfiler.recordContinuous(span, System.nanoTime() - start);
+            if (endCondition()) {
+                start = System.nanoTime();
+                end();
+                TorqueAutoProfiler.recordEnd(span, System.nanoTime() - start);
+                ended = true;
+            }
+        } finally {
+            TorqueAutoProfiler.exit();
+        }
+        return ended;
+    }
+
     public final void reset() {
         end();
         ended = false;
         started = false;
+        span = null;
     }
 
     public final TorqueCommand command() {
@@ -47,6 +80,13 @@ public abstract class TorqueCommand {
         return ended;
     }
 
+    /**
+     * The name this command is reported under by TorqueAutoProfiler.
+     */
+    public String getName() {
+        return getClass().getSimpleName();
+    }
+
     protected abstract void init();
 
     protected abstract void continuous();
@@ -55,6 +95,12 @@ public abstract class TorqueCommand {
 
     protected abstract void end();
 
+    /**
+     * Do any expensive work (loading, generating) ahead of init. Called while
+     * disabled by TorqueAutoManager, so it must not actuate anything.
+     */
+    public void prepare() {}
+
     public TorqueSequence sequence() {
         return new TorqueRunCommand(this);
     }
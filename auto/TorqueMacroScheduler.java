@@ -0,0 +1,111 @@
+/**
+ * Copyright 2011-2023 Texas Torque.
+ *
+ * This file is part of TorqueLib, which is licensed under the MIT license.
+ * For more details, see ./license.txt or write <jus@justusl.com>.
+ */
+package org.texastorque.torquelib.auto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.texastorque.torquelib.base.TorqueSubsystem;
+
+/**
+ * Runs several TorqueSequences at once during teleop (e.g. auto-align and
+ * score from one button). Every macro declares the subsystems it requires,
+ * and scheduling a macro cancels (resets) any running macro that shares a
+ * requirement, so two macros never fight over the same subsystem.
+ *
+ * TorqueRobotBase runs its scheduler every teleop cycle and cancels
+ * everything when teleop starts or the robot is disabled.
+ *
+ * Part of the Texas Torque Autonomous Framework.
+ */
+public final class TorqueMacroScheduler {
+    private static final class Macro {
+        private final TorqueSequence sequence;
+        private final Set<TorqueSubsystem> requirements;
+
+        private Macro(final TorqueSequence sequence, final Set<TorqueSubsystem> requirements) {
+            this.sequence = sequence;
+            this.requirements = requirements;
+        }
+
+        private boolean conflicts(final Set<TorqueSubsystem> others) {
+            for (final TorqueSubsystem subsystem : others)
+                if (requirements.contains(subsystem)) return true;
+            return false;
+        }
+    }
+
+    private final ArrayList<Macro> running = new ArrayList<Macro>();
+
+    public TorqueMacroScheduler() {}
+
+    /**
+     * Start a macro from the beginning, preempting running macros that share a
+     * requirement. Scheduling a macro that is already running restarts it.
+     *
+     * @param sequence The macro.
+     * @param requirements The subsystems the macro drives.
+     */
+    public final void schedule(final TorqueSequence sequence, final TorqueSubsystem... requirements) {
+        final Set<TorqueSubsystem> required = new HashSet<TorqueSubsystem>(Arrays.asList(requirements));
+        for (int i = running.size() - 1; i >= 0; i--) {
+            final Macro macro = running.get(i);
+            if (macro.sequence == sequence || macro.conflicts(required)) {
+                macro.sequence.reset();
+                running.remove(i);
+            }
+        }
+        sequence.reset();
+        running.add(new Macro(sequence, required));
+    }
+
+    /**
+     * Run every active macro for one cycle and drop the ones that finished.
+     */
+    public final void run() {
+        for (int i = 0; i < running.size(); i++) {
+            final Macro macro = running.get(i);
+            macro.sequence.run();
+            if (macro.sequence.hasEnded()) {
+                macro.sequence.reset();
+                running.remove(i--);
+            }
+        }
+    }
+
+    public final boolean isRunning(final TorqueSequence sequence) {
+        for (final Macro macro : running)
+            if (macro.sequence == sequence) return true;
+        return false;
+    }
+
+    /**
+     * @return If any running macro requires the subsystem, so teleop control
+     *         of it should be skipped this cycle.
+     */
+    public final boolean isRequired(final TorqueSubsystem subsystem) {
+        for (final Macro macro : running)
+            if (macro.requirements.contains(subsystem)) return true;
+        return false;
+    }
+
+    public final void cancel(final TorqueSequence sequence) {
+        for (int i = running.size() - 1; i >= 0; i--) {
+            if (running.get(i).sequence == sequence) {
+                sequence.reset();
+                running.remove(i);
+            }
+        }
+    }
+
+    public final void cancelAll() {
+        for (final Macro macro : running) macro.sequence.reset();
+        running.clear();
+    }
+}
@@ -0,0 +1,393 @@
+/**
+ * Copyright 2011-2023 Texas Torque.
+ *
+ * This file is part of TorqueLib, which is licensed under the MIT license.
+ * For more details, see ./license.txt or write <jus@justusl.com>.
+ */
+package org.texastorque.torquelib.auto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Future;
+
+import org.texastorque.torquelib.auto.commands.TorqueFollowPath;
+import org.texastorque.torquelib.auto.commands.TorqueFollowPath.TorquePathingDrivebase;
+import org.texastorque.torquelib.auto.commands.TorqueRun;
+import org.texastorque.torquelib.auto.commands.TorqueRunAsync;
+import org.texastorque.torquelib.auto.commands.TorqueSwitch;
+import org.texastorque.torquelib.auto.commands.TorqueWhile;
+import org.texastorque.torquelib.control.TorqueFieldZone;
+
+import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.path.PathPoint;
+import com.pathplanner.lib.util.FlippingUtil;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+
+/**
+ * Plans a path from the current pose to a target pose around obstacles given
+ * as TorqueFieldZones (in blue alliance coordinates), so the robot can drive
+ * to a scoring position without a pre-drawn path.
+ *
+ * At construction the obstacles are grown by the robot clearance and a
+ * visibility graph between their corners is built once for each alliance.
+ * A query only connects the start and goal to that graph and runs a
+ * shortest path search, which takes a few milliseconds and is run on the
+ * TorqueRunAsync executor. The route is then smoothed into a path whose
+ * sampled curve is checked against the grown obstacles, and driveTo also
+ * generates the trajectory on that executor.
+ *
+ * Part of the Texas Torque Autonomous Framework.
+ */
+public final class TorqueObstaclePlanner {
+    // Nodes sit this much further out than the collision polygons so that they never touch them.
+    private static final double NODE_MARGIN = 1.02;
+    // Cap on how far a sharp corner is pushed out, as a multiple of the clearance.
+    private static final double MAX_MITER = 3;
+    // How many times the route is subdivided to pull a colliding curve closer to it.
+    private static final int MAX_REFINEMENTS = 3;
+    // How far the robot may move while driveTo plans before it plans again from the new pose, and how often.
+    private static final double MAX_START_DRIFT = .25;
+    private static final int MAX_PLANS = 3;
+
+    private static final class Graph {
+        private final double[][] obstacleX, obstacleY; // inflated collision polygons
+        private final TorqueFieldZone[] obstacles;
+        private final double[] nodeX, nodeY;
+        private final double[][] distances; // infinity when blocked
+
+        private Graph(final TorqueFieldZone[] zones, final double clearance, final boolean flip) {
+            final int count = zones.length;
+            obstacleX = new double[count][];
+            obstacleY = new double[count][];
+            obstacles = new TorqueFieldZone[count];
+
+            final ArrayList<double[]> nodes = new ArrayList<double[]>();
+            for (int i = 0; i < count; i++) {
+                final Translation2d[] polygon = zones[i].getPolygon().clone();
+                if (flip)
+                    for (int j = 0; j < polygon.length; j++) polygon[j] = FlippingUtil.flipFieldPosition(polygon[j]);
+
+                final double[][] inflated = inflate(polygon, clearance);
+                obstacleX[i] = inflated[0];
+                obstacleY[i] = inflated[1];
+                final Translation2d[] points = new Translation2d[polygon.length];
+                for (int j = 0; j < polygon.length; j++) points[j] = new Translation2d(inflated[0][j], inflated[1][j]);
+                obstacles[i] = new TorqueFieldZone(zones[i].getID(), points);
+
+                final double[][] outer = inflate(polygon, clearance * NODE_MARGIN);
+                for (int j = 0; j < polygon.length; j++) nodes.add(new double[] {outer[0][j], outer[1][j]});
+            }
+
+            // Drop corners that land inside another obstacle.
+            nodes.removeIf(node -> insideAny(node[0], node[1]) >= 0);
+
+            final int n = nodes.size();
+            nodeX = new double[n];
+            nodeY = new double[n];
+            for (int i = 0; i < n; i++) {
+                nodeX[i] = nodes.get(i)[0];
+                nodeY[i] = nodes.get(i)[1];
+            }
+
+            distances = new double[n][n];
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    final double d = visible(nodeX[i], nodeY[i], nodeX[j], nodeY[j], -1)
+                            ? Math.hypot(nodeX[j] - nodeX[i], nodeY[j] - nodeY[i])
+                            : Double.POSITIVE_INFINITY;
+                    distances[i][j] = d;
+                    distances[j][i] = d;
+                }
+            }
+        }
+
+        private int insideAny(final double x, final double y) {
+            for (int i = 0; i < obstacles.length; i++)
+                if (obstacles[i].contains(x, y)) return i;
+            return -1;
+        }
+
+        // Is the segment clear of every obstacle, ignoring the one the start point is stuck in.
+        private boolean visible(final double ax, final double ay, final double bx, final double by, final int skip) {
+            final double mx = (ax + bx) / 2, my = (ay + by) / 2;
+            for (int i = 0; i < obstacles.length; i++) {
+                if (i == skip) continue;
+                final double[] xs = obstacleX[i], ys = obstacleY[i];
+                for (int j = 0; j < xs.length; j++) {
+                    final int k = (j + 1) % xs.length;
+                    if (crosses(ax, ay, bx, by, xs[j], ys[j], xs[k], ys[k])) return false;
+                }
+                if (obstacles[i].contains(mx, my)) return false;
+            }
+            return true;
+        }
+
+        private Optional<List<Translation2d>> route(final Translation2d start, final Translation2d goal) {
+            final int n = nodeX.length, startNode = n, goalNode = n + 1;
+            final int startZone = insideAny(start.getX(), start.getY());
+            final int goalZone = insideAny(goal.getX(), goal.getY());
+            if (goalZone >= 0) return Optional.empty();
+
+            if (visible(start.getX(), start.getY(), goal.getX(), goal.getY(), startZone))
+                return Optional.of(List.of(start, goal));
+
+            final double[] toStart = new double[n], toGoal = new double[n];
+            for (int i = 0; i < n; i++) {
+                toStart[i] = visible(start.getX(), start.getY(), nodeX[i], nodeY[i], startZone)
+                        ? Math.hypot(nodeX[i] - start.getX(), nodeY[i] - start.getY())
+                        : Double.POSITIVE_INFINITY;
+                toGoal[i] = visible(nodeX[i], nodeY[i], goal.getX(), goal.getY(), -1)
+                        ? Math.hypot(goal.getX() - nodeX[i], goal.getY() - nodeY[i])
+                        : Double.POSITIVE_INFINITY;
+            }
+
+            // A* over the dense graph, n is small so a linear scan for the open minimum is fine.
+            final double[] cost = new double[n + 2];
+            final int[] parent = new int[n + 2];
+            final boolean[] closed = new boolean[n + 2];
+            Arrays.fill(cost, Double.POSITIVE_INFINITY);
+            Arrays.fill(parent, -1);
+            cost[startNode] = 0;
+
+            while (true) {
+                int current = -1;
+                double best = Double.POSITIVE_INFINITY;
+                for (int i = 0; i < n + 2; i++) {
+                    if (closed[i] || cost[i] == Double.POSITIVE_INFINITY) continue;
+                    final double f = cost[i] + heuristic(i, goal);
+                    if (f < best) {
+                        best = f;
+                        current = i;
+                    }
+                }
+                if (current == -1) return Optional.empty();
+                if (current == goalNode) break;
+                closed[current] = true;
+
+                for (int next = 0; next < n + 2; next++) {
+                    if (closed[next] || next == startNode) continue;
+                    final double edge;
+                    if (current == startNode)
+                        edge = next == goalNode ? Double.POSITIVE_INFINITY : toStart[next];
+                    else if (next == goalNode)
+                        edge = toGoal[current];
+                    else
+                        edge = distances[current][next];
+                    if (cost[current] + edge < cost[next]) {
+                        cost[next] = cost[current] + edge;
+                        parent[next] = current;
+                    }
+                }
+            }
+
+            final ArrayList<Translation2d> points = new ArrayList<Translation2d>();
+            for (int i = goalNode; i != -1; i = parent[i])
+                points.add(0, i == goalNode ? goal : i == startNode ? start : new Translation2d(nodeX[i], nodeY[i]));
+            return Optional.of(points);
+        }
+
+        // Is the curve through the sampled path points clear of every obstacle but the one it starts in.
+        private boolean clear(final PathPlannerPath path) {
+            final List<PathPoint> samples = path.getAllPathPoints();
+            if (samples.isEmpty()) return true;
+            final Translation2d start = samples.get(0).position;
+            final int skip = insideAny(start.getX(), start.getY());
+            for (int i = 1; i < samples.size(); i++) {
+                final Translation2d a = samples.get(i - 1).position, b = samples.get(i).position;
+                if (!visible(a.getX(), a.getY(), b.getX(), b.getY(), skip)) return false;
+            }
+            return true;
+        }
+
+        private double heuristic(final int node, final Translation2d goal) {
+            if (node >= nodeX.length) return 0;
+            return Math.hypot(goal.getX() - nodeX[node], goal.getY() - nodeY[node]);
+        }
+    }
+
+    private final PathConstraints constraints;
+    private final Graph blue, red;
+
+    /**
+     * @param clearance Distance to keep from every obstacle, usually the robot radius plus margin.
+     * @param constraints Velocity and acceleration limits for generated paths.
+     * @param obstacles The obstacles in blue alliance coordinates.
+     */
+    public TorqueObstaclePlanner(final double clearance, final PathConstraints constraints,
+            final TorqueFieldZone... obstacles) {
+        this.constraints = constraints;
+        this.blue = new Graph(obstacles, clearance, false);
+        this.red = new Graph(obstacles, clearance, true);
+    }
+
+    /**
+     * Find the shortest obstacle free polyline between two points on the
+     * current alliance's field.
+     *
+     * @return The corners of the route including start and goal, or empty if there is none.
+     */
+    public final Optional<List<Translation2d>> route(final Translation2d start, final Translation2d goal) {
+        return getGraph().route(start, goal);
+    }
+
+    /**
+     * Plan a followable path on the background executor.
+     *
+     * @return A future for the path, completed with null if the goal is unreachable. Cancelling it
+     *         interrupts the planning thread.
+     */
+    public final Future<PathPlannerPath> plan(final Pose2d start, final Pose2d goal) {
+        final Graph graph = getGraph();
+        return TorqueRunAsync.getExecutor().submit(() -> graph.route(start.getTranslation(), goal.getTranslation())
+                .map(points -> toPath(graph, points, goal.getRotation())).orElse(null));
+    }
+
+    /**
+     * Build a path through the route corners. The path is already in the
+     * current alliance's coordinates, so it is marked to not be flipped.
+     *
+     * @return The path, or null if its curve cuts into an obstacle even after
+     *         pulling it toward the route.
+     */
+    public final PathPlannerPath toPath(final List<Translation2d> points, final Rotation2d goalRotation) {
+        return toPath(getGraph(), points, goalRotation);
+    }
+
+    private PathPlannerPath toPath(final Graph graph, final List<Translation2d> points, final Rotation2d goalRotation) {
+        List<Translation2d> route = points;
+        for (int refinement = 0; refinement <= MAX_REFINEMENTS; refinement++) {
+            final PathPlannerPath path = smooth(route, goalRotation);
+            if (graph.clear(path)) return path;
+            route = subdivide(route);
+        }
+        System.out.println("Failed to smooth obstacle route: every curve through it hits an obstacle");
+        return null;
+    }
+
+    // Waypoints through every point, each heading along the bisector of its two segments so the curve is
+    // tangent continuous and turns evenly about the corner instead of overshooting it.
+    private PathPlannerPath smooth(final List<Translation2d> points, final Rotation2d goalRotation) {
+        final int n = points.size();
+        final Pose2d[] poses = new Pose2d[n];
+        for (int i = 0; i < n; i++) {
+            final Translation2d in = points.get(Math.max(1, i)).minus(points.get(Math.max(0, i - 1)));
+            final Translation2d out = points.get(Math.min(n - 1, i + 1)).minus(points.get(Math.min(n - 2, i)));
+            final Translation2d bisector = in.div(Math.max(1e-9, in.getNorm()))
+                    .plus(out.div(Math.max(1e-9, out.getNorm())));
+            // A full reversal has no bisector, keep the incoming direction.
+            poses[i] = new Pose2d(points.get(i), bisector.getNorm() > 1e-6 ? bisector.getAngle() : in.getAngle());
+        }
+        final PathPlannerPath path = new PathPlannerPath(PathPlannerPath.waypointsFromPoses(poses), constraints, null,
+                new GoalEndState(0, goalRotation));
+        path.preventFlipping = true;
+        return path;
+    }
+
+    // Add the midpoint of every segment. The midpoints lie on the clear route, so the curve is pulled toward it.
+    private static List<Translation2d> subdivide(final List<Translation2d> points) {
+        final ArrayList<Translation2d> result = new ArrayList<Translation2d>(points.size() * 2);
+        for (int i = 0; i < points.size() - 1; i++) {
+            result.add(points.get(i));
+            result.add(points.get(i).interpolate(points.get(i + 1), .5));
+        }
+        result.add(points.get(points.size() - 1));
+        return result;
+    }
+
+    /**
+     * A command that plans from the drivebase's pose to the goal in the
+     * background and then follows the result, for "drive to scoring position"
+     * macros. If the robot moved too far while planning it plans again from
+     * where it is. Odometry is never reset to the start of the planned path.
+     * Does nothing if the goal is unreachable.
+     */
+    public final TorqueCommand driveTo(final Pose2d goal, final TorquePathingDrivebase drivebase) {
+        return new DriveTo(goal, drivebase).command();
+    }
+
+    private final class DriveTo extends TorqueSequence {
+        private Pose2d start;
+        private volatile PathPlannerPath path;
+        private int plans;
+
+        private DriveTo(final Pose2d goal, final TorquePathingDrivebase drivebase) {
+            final TorqueFollowPath follow = new TorqueFollowPath(() -> path, drivebase).withoutPoseReset();
+            addBlock(new TorqueRun(() -> plans = 0));
+            addBlock(new TorqueWhile(() -> plans == 0 || (plans < MAX_PLANS && path != null
+                    && drivebase.getPose().getTranslation().getDistance(start.getTranslation()) > MAX_START_DRIFT),
+                    new Plan(goal, drivebase, follow)));
+            addBlock(new TorqueSwitch(() -> path != null, follow.sequence()));
+        }
+
+        private final class Plan extends TorqueSequence {
+            private Plan(final Pose2d goal, final TorquePathingDrivebase drivebase, final TorqueFollowPath follow) {
+                addBlock(new TorqueRun(() -> {
+                    start = drivebase.getPose();
+                    path = null;
+                    plans++;
+                }), new TorqueRunAsync<PathPlannerPath>(progress -> {
+                    final Graph graph = getGraph();
+                    final Optional<List<Translation2d>> points = graph.route(start.getTranslation(),
+                            goal.getTranslation());
+                    path = points.map(p -> toPath(graph, p, goal.getRotation())).orElse(null);
+                    // Generate the trajectory here too, so the follower's init only has to check it.
+                    if (path != null) follow.prepare(start);
+                    return path;
+                }));
+            }
+        }
+    }
+
+    private Graph getGraph() {
+        return DriverStation.getAlliance().orElse(Alliance.Blue) == Alliance.Red ? red : blue;
+    }
+
+    // Grow a polygon outward by distance using mitered corners.
+    private static double[][] inflate(final Translation2d[] polygon, final double distance) {
+        final int n = polygon.length;
+        double area = 0;
+        for (int i = 0; i < n; i++) {
+            final Translation2d a = polygon[i], b = polygon[(i + 1) % n];
+            area += a.getX() * b.getY() - b.getX() * a.getY();
+        }
+        final double orientation = area >= 0 ? 1 : -1; // counter clockwise is positive
+
+        final double[] xs = new double[n], ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            final Translation2d prev = polygon[(i + n - 1) % n], point = polygon[i], next = polygon[(i + 1) % n];
+            final double[] n1 = outwardNormal(prev, point, orientation), n2 = outwardNormal(point, next, orientation);
+            final double scale = Math.min(1 / Math.max(1e-9, 1 + n1[0] * n2[0] + n1[1] * n2[1]), MAX_MITER / 2);
+            xs[i] = point.getX() + distance * (n1[0] + n2[0]) * scale;
+            ys[i] = point.getY() + distance * (n1[1] + n2[1]) * scale;
+        }
+        return new double[][] {xs, ys};
+    }
+
+    private static double[] outwardNormal(final Translation2d a, final Translation2d b, final double orientation) {
+        final double dx = b.getX() - a.getX(), dy = b.getY() - a.getY();
+        final double length = Math.max(1e-9, Math.hypot(dx, dy));
+        return new double[] {orientation * dy / length, -orientation * dx / length};
+    }
+
+    // Proper intersection of segments ab and cd (touching at an end does not count).
+    private static boolean crosses(final double ax, final double ay, final double bx, final double by,
+            final double cx, final double cy, final double dx, final double dy) {
+        final double d1 = cross(cx, cy, dx, dy, ax, ay), d2 = cross(cx, cy, dx, dy, bx, by);
+        final double d3 = cross(ax, ay, bx, by, cx, cy), d4 = cross(ax, ay, bx, by, dx, dy);
+        return ((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0));
+    }
+
+    private static double cross(final double ax, final double ay, final double bx, final double by,
+            final double px, final double py) {
+        return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+    }
+}
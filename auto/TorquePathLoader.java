@@ -1,60 +1,376 @@
 
 package org.texastorque.torquelib.auto;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.texastorque.torquelib.auto.commands.TorqueRunAsync;
+import org.texastorque.torquelib.util.TorqueTime;
 
 import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.trajectory.PathPlannerTrajectory;
+
+import edu.wpi.first.wpilibj.Filesystem;
 
 /**
- * Preloads paths to avoid calling the expensive PathPlannerPath.loadPathFile 
- * during auto runtime. 
+ * Preloads paths to avoid calling the expensive PathPlannerPath.loadPathFile
+ * during auto runtime.
+ *
+ * The cache is bounded by an estimate of the memory its paths take. When it
+ * is over capacity the least recently used unpinned path is evicted, and is
+ * transparently reloaded from the deploy directory the next time it is asked
+ * for. Paths used by the selected auto are pinned so they are never evicted.
+ * Trajectories generated from a loaded path can be attached to it, so they
+ * count toward the estimate and are released when the path is evicted.
+ *
+ * With startWatching() the deploy paths directory is watched for changes.
+ * A changed file whose content hash differs is reloaded in the background
+ * and swapped in by applyReloads(), which TorqueAutoManager calls between
+ * cycles while disabled.
  */
 public final class TorquePathLoader {
-    private final Map<String, PathPlannerPath> loadedTrajectories = new HashMap<>();
+    public static final long DEFAULT_CAPACITY_BYTES = 16 * 1024 * 1024;
+
+    private static final TorquePathLoader shared = new TorquePathLoader();
+
+    /**
+     * The process-wide loader, used by TorqueAutoManager and by TorqueFollowPaths
+     * constructed from a path name.
+     */
+    public static TorquePathLoader getShared() { return shared; }
+
+    // Rough heap cost of a PathPlannerPath: fixed overhead plus per generated path point.
+    private static final long BYTES_PER_PATH = 4 * 1024, BYTES_PER_POINT = 160;
+    // Rough heap cost of a trajectory state with its module states and feedforwards.
+    private static final long BYTES_PER_STATE = 512;
+
+    private static final class Entry {
+        private final PathPlannerPath path;
+        private long bytes;
+        // Release callbacks of what was generated from the path, with their estimated size.
+        private final Map<Runnable, Long> attached = new HashMap<>();
+
+        private Entry(final PathPlannerPath path) {
+            this.path = path;
+            this.bytes = estimateBytes(path);
+        }
+    }
+
+    private final long capacity;
+    private final Map<String, Entry> loadedTrajectories = new LinkedHashMap<>(16, .75f, true); // access order
+    private final Set<String> known = new HashSet<>();
+    private final Set<String> pinned = new HashSet<>();
+    private Thread pinningThread = null;
+    private long bytes = 0, hits = 0, misses = 0, evictions = 0;
+    private double loadTime = 0;
 
-    public TorquePathLoader() {}
+    private final Map<String, Long> hashes = new HashMap<>();
+    private final Map<String, PathPlannerPath> pendingReloads = new HashMap<>();
+    private final Map<String, Long> pendingHashes = new HashMap<>();
+    private Thread watcher = null;
 
-    public void preloadPath(final String pathName) {
+    public TorquePathLoader() { this(DEFAULT_CAPACITY_BYTES); }
+
+    /**
+     * @param capacity The estimated number of bytes of paths to keep loaded.
+     */
+    public TorquePathLoader(final long capacity) { this.capacity = capacity; }
+
+    public synchronized void preloadPath(final String pathName) {
         if (loadedTrajectories.containsKey(pathName)) {
             return;
         }
         try {
-            loadedTrajectories.put(pathName, PathPlannerPath.fromPathFile(pathName));
+            put(pathName, load(pathName));
         } catch (Exception e) {}
     }
 
-     public void preloadPathSafe(final String pathName) {
+    public synchronized void preloadPathSafe(final String pathName) {
         if (loadedTrajectories.containsKey(pathName)) {
             return;
         }
         try {
-            final PathPlannerPath loadedPath = PathPlannerPath.fromPathFile(pathName);
-            loadedTrajectories.put(pathName, loadedPath);
+            final PathPlannerPath loadedPath = load(pathName);
+            put(pathName, loadedPath);
         } catch (final Exception e) {
             System.out.println("Failed to load path " + pathName);
         }
     }
 
-    public Optional<PathPlannerPath> getPathSafe(final String pathName) {
-        if (!loadedTrajectories.containsKey(pathName)) {
+    public synchronized Optional<PathPlannerPath> getPathSafe(final String pathName) {
+        if (!loadedTrajectories.containsKey(pathName) && !known.contains(pathName)) {
             return Optional.empty();
         }
-        return Optional.of(getPathUnsafe(pathName));
+        return Optional.ofNullable(getPathUnsafe(pathName));
     }
 
-    public PathPlannerPath getPathSlow(final String pathName) {
+    public synchronized PathPlannerPath getPathSlow(final String pathName) {
         if (!loadedTrajectories.containsKey(pathName)) {
-            try {
-                return PathPlannerPath.fromPathFile(pathName);
-            } catch (Exception e) {}
-            return getPathUnsafe(pathName);
+            preloadPathSafe(pathName);
         }
         return getPathUnsafe(pathName);
     }
 
-    public PathPlannerPath getPathUnsafe(final String pathName) {
-        return loadedTrajectories.get(pathName);
+    public synchronized PathPlannerPath getPathUnsafe(final String pathName) {
+        if (Thread.currentThread() == pinningThread) pinned.add(pathName);
+
+        final Entry entry = loadedTrajectories.get(pathName);
+        if (entry != null) {
+            hits++;
+            return entry.path;
+        }
+        misses++;
+        if (!known.contains(pathName)) return null;
+
+        // Evicted earlier, reload from the deploy directory.
+        try {
+            return put(pathName, load(pathName)).path;
+        } catch (final Exception e) {
+            System.out.println("Failed to reload path " + pathName);
+        }
+        return null;
+    }
+
+    /**
+     * Pin exactly the paths requested from this loader by the calling thread
+     * while the action runs (e.g. while preparing the selected auto),
+     * replacing any earlier pins. The loader is not locked while the action
+     * runs, so trajectory generation in it does not block other callers.
+     */
+    public void pinAccessed(final Runnable action) {
+        synchronized (this) {
+            pinned.clear();
+            pinningThread = Thread.currentThread();
+        }
+        try {
+            action.run();
+        } finally {
+            synchronized (this) {
+                pinningThread = null;
+            }
+        }
+    }
+
+    /**
+     * Count something generated from a loaded path (a trajectory, a flipped
+     * copy) toward the memory estimate. When the path is evicted or reloaded
+     * release is called so the holder drops it. Attaching again with the same
+     * release replaces the earlier attachment. Does nothing for a path that
+     * is not loaded here.
+     *
+     * @param path The path exactly as returned by this loader.
+     * @param bytes The estimated size, see estimateBytes.
+     * @param release Drops the generated data, called with the loader locked.
+     */
+    public synchronized void attach(final PathPlannerPath path, final long bytes, final Runnable release) {
+        String attachedTo = null;
+        for (final Map.Entry<String, Entry> entry : loadedTrajectories.entrySet()) {
+            final Long old = entry.getValue().attached.remove(release);
+            if (old != null) {
+                entry.getValue().bytes -= old;
+                this.bytes -= old;
+            }
+            if (entry.getValue().path == path) {
+                entry.getValue().attached.put(release, bytes);
+                entry.getValue().bytes += bytes;
+                this.bytes += bytes;
+                attachedTo = entry.getKey();
+            }
+        }
+        if (attachedTo != null) evictOverCapacity(attachedTo);
+    }
+
+    public static long estimateBytes(final PathPlannerPath path) {
+        return BYTES_PER_PATH + BYTES_PER_POINT * path.getAllPathPoints().size();
+    }
+
+    public static long estimateBytes(final PathPlannerTrajectory trajectory) {
+        return BYTES_PER_STATE * trajectory.getStates().size();
+    }
+
+    public synchronized void pin(final String pathName) { pinned.add(pathName); }
+
+    public synchronized void unpin(final String pathName) {
+        pinned.remove(pathName);
+        evictOverCapacity(null);
+    }
+
+    public synchronized boolean isLoaded(final String pathName) { return loadedTrajectories.containsKey(pathName); }
+
+    public synchronized long getMemoryUsage() { return bytes; }
+
+    public long getCapacity() { return capacity; }
+
+    public synchronized long getHits() { return hits; }
+
+    public synchronized long getMisses() { return misses; }
+
+    public synchronized long getEvictions() { return evictions; }
+
+    /**
+     * Start watching the deploy paths directory for changed path files.
+     */
+    public void startWatching() {
+        final Path directory = getPathsDirectory().toPath();
+        final Set<String> names;
+        final Thread thread = new Thread(() -> watch(directory), "TorquePathLoader");
+        synchronized (this) {
+            if (watcher != null) return;
+            watcher = thread;
+            names = new HashSet<>(known);
+        }
+        // Reading and hashing the files is slow, so do it without holding the lock.
+        for (final String pathName : names) {
+            final long hash = hash(pathName);
+            synchronized (this) {
+                hashes.putIfAbsent(pathName, hash);
+            }
+        }
+
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Swap in every path that was reloaded since the last call. Call between
+     * cycles, never while a sequence using the paths is running.
+     *
+     * @return The names of the paths that changed.
+     */
+    public synchronized Set<String> applyReloads() {
+        if (pendingReloads.isEmpty()) return Set.of();
+        final Set<String> changed = new HashSet<>(pendingReloads.keySet());
+        for (final Map.Entry<String, PathPlannerPath> reload : pendingReloads.entrySet()) {
+            put(reload.getKey(), reload.getValue());
+            hashes.put(reload.getKey(), pendingHashes.get(reload.getKey()));
+        }
+        pendingReloads.clear();
+        pendingHashes.clear();
+        return changed;
+    }
+
+    private void watch(final Path directory) {
+        try (WatchService service = FileSystems.getDefault().newWatchService()) {
+            directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            while (true) {
+                final WatchKey key = service.take();
+                for (final WatchEvent<?> event : key.pollEvents()) {
+                    final String fileName = event.context().toString();
+                    if (fileName.endsWith(".path"))
+                        reloadIfChanged(fileName.substring(0, fileName.length() - ".path".length()));
+                }
+                key.reset();
+            }
+        } catch (final IOException e) {
+            System.out.println("Stopped watching paths: " + e.getMessage());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Runs on the watcher thread, only takes the lock to read and publish.
+    private void reloadIfChanged(final String pathName) {
+        synchronized (this) {
+            if (!known.contains(pathName)) return;
+        }
+        final long hash = hash(pathName);
+        synchronized (this) {
+            final Long latest = pendingHashes.containsKey(pathName) ? pendingHashes.get(pathName) : hashes.get(pathName);
+            if (latest != null && latest == hash) return;
+        }
+        try {
+            final PathPlannerPath path = PathPlannerPath.fromPathFile(pathName);
+            synchronized (this) {
+                pendingReloads.put(pathName, path);
+                pendingHashes.put(pathName, hash);
+            }
+        } catch (final Exception e) {
+            // Usually a half written file, the next modify event retries.
+            System.out.println("Failed to hot reload path " + pathName);
+        }
+    }
+
+    private static long hash(final String pathName) {
+        final CRC32 crc = new CRC32();
+        try {
+            crc.update(Files.readAllBytes(new File(getPathsDirectory(), pathName + ".path").toPath()));
+        } catch (final IOException e) {
+            return -1;
+        }
+        return crc.getValue();
+    }
+
+    private static File getPathsDirectory() {
+        return new File(Filesystem.getDeployDirectory(), "pathplanner/paths");
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d paths (%d pinned), %.1f / %.1f KB, %d hits, %d misses, %d evictions, %.1f ms loading",
+                loadedTrajectories.size(), pinned.size(), bytes / 1024., capacity / 1024., hits, misses, evictions,
+                loadTime * 1000);
+    }
+
+    private PathPlannerPath load(final String pathName) throws Exception {
+        final double start = TorqueTime.live();
+        try {
+            return PathPlannerPath.fromPathFile(pathName);
+        } finally {
+            loadTime += TorqueTime.live() - start;
+        }
+    }
+
+    private Entry put(final String pathName, final PathPlannerPath path) {
+        final Entry entry = new Entry(path);
+        final Entry old = loadedTrajectories.put(pathName, entry);
+        if (old != null) release(old);
+        bytes += entry.bytes;
+        if (known.add(pathName) && watcher != null) hashInBackground(pathName);
+        evictOverCapacity(pathName);
+        return entry;
+    }
+
+    // The watcher compares against the hash of the loaded file, computed off the caller's thread and lock.
+    private void hashInBackground(final String pathName) {
+        TorqueRunAsync.getExecutor().submit(() -> {
+            final long hash = hash(pathName);
+            synchronized (this) {
+                hashes.putIfAbsent(pathName, hash);
+            }
+        });
+    }
+
+    private void release(final Entry entry) {
+        bytes -= entry.bytes;
+        for (final Runnable callback : entry.attached.keySet()) callback.run();
+        entry.attached.clear();
+    }
+
+    // Evict least recently used unpinned paths (never the one just added) until under capacity.
+    private void evictOverCapacity(final String keep) {
+        final Iterator<Map.Entry<String, Entry>> iterator = loadedTrajectories.entrySet().iterator();
+        while (bytes > capacity && iterator.hasNext()) {
+            final Map.Entry<String, Entry> entry = iterator.next();
+            if (pinned.contains(entry.getKey()) || entry.getKey().equals(keep)) continue;
+            release(entry.getValue());
+            iterator.remove();
+            evictions++;
+        }
     }
 }
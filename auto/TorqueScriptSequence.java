@@ -0,0 +1,215 @@
+/**
+ * Copyright 2011-2023 Texas Torque.
+ *
+ * This file is part of TorqueLib, which is licensed under the MIT license.
+ * For more details, see ./license.txt or write <jus@justusl.com>.
+ */
+package org.texastorque.torquelib.auto;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Semaphore;
+import java.util.function.BooleanSupplier;
+
+import org.texastorque.torquelib.util.TorqueClock;
+import org.texastorque.torquelib.util.TorqueTime;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * A TorqueSequence written as plain sequential Java instead of addBlock
+ * chains:
+ *
+ *  protected void script() {
+ *      run(new TorqueFollowPath("A", drivebase));
+ *      waitUntil(shooter::isReady);
+ *      intake.setState(State.FEED);
+ *      waitTime(.5);
+ *  }
+ *
+ * The script runs on its own (virtual when the JVM has them) thread, but
+ * only ever while the loop thread is blocked handing it the cycle: each
+ * run() of the sequence resumes the script exactly once and waits for it to
+ * park again at the next cycle boundary. Nothing runs concurrently with the
+ * loop, so the script is as deterministic as a regular sequence.
+ *
+ * This is for readability, not speed. Every cycle is two thread handoffs,
+ * and on Java 17 (no virtual threads) those are OS context switches: about
+ * 3 us per cycle measured on a desktop JVM, and more on a roboRIO. That is
+ * more than running the equivalent addBlock sequence costs, though still
+ * small next to a 20 ms loop.
+ *
+ * Part of the Texas Torque Autonomous Framework.
+ */
+public abstract class TorqueScriptSequence extends TorqueSequence {
+    // Unwinds the script thread when the sequence is reset mid-script. An
+    // Error so that a script catching RuntimeException does not swallow it.
+    private static final class Cancelled extends Error {
+        private static final long serialVersionUID = 1L;
+
+        private Cancelled() { super(null, null, false, false); }
+    }
+
+    private final Coroutine coroutine = new Coroutine();
+
+    public TorqueScriptSequence() { addBlock(coroutine); }
+
+    /**
+     * The body of the auto. Runs from the top every time the sequence starts.
+     */
+    protected abstract void script();
+
+    /**
+     * Park until the next cycle.
+     */
+    protected final void yieldCycle() { coroutine.park(); }
+
+    /**
+     * Park every cycle until the condition is true (checked immediately first).
+     */
+    protected final void waitUntil(final BooleanSupplier condition) {
+        while (!condition.getAsBoolean()) yieldCycle();
+    }
+
+    /**
+     * Park for at least the given number of seconds.
+     */
+    protected final void waitTime(final double seconds) {
+        final double start = TorqueTime.now();
+        while (TorqueTime.now() - start < seconds) yieldCycle();
+    }
+
+    /**
+     * Run a command to completion, one run() per cycle, then continue in the
+     * same cycle it ended in.
+     */
+    protected final void run(final TorqueCommand command) {
+        command.reset();
+        try {
+            while (!command.run()) yieldCycle();
+        } catch (final Cancelled e) {
+            command.reset();
+            throw e;
+        }
+    }
+
+    /**
+     * Run a whole sequence to completion.
+     */
+    protected final void run(final TorqueSequence sequence) {
+        sequence.reset();
+        try {
+            sequence.run();
+            while (!sequence.hasEnded()) {
+                yieldCycle();
+                sequence.run();
+            }
+        } catch (final Cancelled e) {
+            sequence.reset();
+            throw e;
+        }
+    }
+
+    // One script thread and its handoff state. A fresh one is made every
+    // time the sequence starts, so a script thread left over from an earlier
+    // run can never take a cycle meant for the current one.
+    private static final class Run {
+        private final Semaphore resumed = new Semaphore(0), parked = new Semaphore(0);
+        private volatile boolean finished = false, cancelled = false;
+        private Thread thread;
+
+        // Called only from this run's script thread. Once cancelled it only
+        // throws: the script thread releases parked a last time when it has
+        // fully unwound, which is what end() waits for.
+        private void park() {
+            if (!cancelled) {
+                parked.release();
+                resumed.acquireUninterruptibly();
+            }
+            if (cancelled) throw new Cancelled();
+        }
+    }
+
+    private final class Coroutine extends TorqueCommand {
+        private final ThreadLocal<Run> scriptRun = new ThreadLocal<Run>();
+        private Run run;
+
+        @Override
+        protected final void init() {
+            final Run run = new Run();
+            final TorqueClock clock = TorqueTime.getBound();
+            run.thread = newThread(() -> {
+                scriptRun.set(run);
+                if (clock != null) TorqueTime.bind(clock);
+                run.resumed.acquireUninterruptibly();
+                try {
+                    if (!run.cancelled) script();
+                } catch (final Cancelled e) {
+                } catch (final RuntimeException e) {
+                    DriverStation.reportError("Script " + getName() + " failed: " + e, e.getStackTrace());
+                } finally {
+                    if (clock != null) TorqueTime.unbind();
+                    run.finished = true;
+                    run.parked.release();
+                }
+            });
+            this.run = run;
+            run.thread.start();
+        }
+
+        @Override
+        protected final void continuous() {
+            if (run.finished) return;
+            run.resumed.release();
+            run.parked.acquireUninterruptibly();
+        }
+
+        @Override
+        protected final boolean endCondition() { return run.finished; }
+
+        @Override
+        protected final void end() {
+            if (run == null) return;
+            if (!run.finished) {
+                run.cancelled = true;
+                run.resumed.release();
+                run.parked.acquireUninterruptibly();
+            }
+            run = null;
+        }
+
+        @Override
+        public final String getName() { return TorqueScriptSequence.this.getClass().getSimpleName(); }
+
+        private void park() {
+            final Run run = scriptRun.get();
+            if (run == null) throw new IllegalStateException("yieldCycle called outside of the script");
+            run.park();
+        }
+    }
+
+    private static final Method ofVirtual, unstarted;
+
+    static {
+        Method virtual = null, start = null;
+        try {
+            virtual = Thread.class.getMethod("ofVirtual");
+            start = Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+        } catch (final ReflectiveOperationException e) {
+            virtual = null;
+        }
+        ofVirtual = virtual;
+        unstarted = start;
+    }
+
+    // Virtual threads are Java 21+, WPILib ships 17, so look them up reflectively.
+    private static Thread newThread(final Runnable body) {
+        if (ofVirtual != null) {
+            try {
+                return (Thread)unstarted.invoke(ofVirtual.invoke(null), body);
+            } catch (final ReflectiveOperationException e) {}
+        }
+        final Thread thread = new Thread(body, "TorqueScriptSequence");
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -14,6 +14,9 @@ import java.util.function.Supplier;
 import org.texastorque.torquelib.Debug;
 import org.texastorque.torquelib.auto.commands.TorqueRun;
 import org.texastorque.torquelib.auto.commands.TorqueRunSequence;
+import org.texastorque.torquelib.util.TorqueTime;
+
+import edu.wpi.first.wpilibj.DriverStation;
 
 /**
  * Texas Torque autonomous sequence base class.
@@ -23,10 +26,33 @@ import org.texastorque.torquelib.auto.commands.TorqueRunSequence;
  * @author Texas Torque
  */
 public abstract class TorqueSequence {
+    // Timing history and optional-ness of a block, parallel to commands.
+    private static final class BlockInfo {
+        private final boolean optional;
+        private final TorqueBlock alternate;
+        private double estimate, alternateEstimate;
+
+        private BlockInfo(final boolean optional, final double estimate, final TorqueBlock alternate,
+                final double alternateEstimate) {
+            this.optional = optional;
+            this.estimate = estimate;
+            this.alternate = alternate;
+            this.alternateEstimate = alternateEstimate;
+        }
+    }
+
+    // Weight of the newest measured duration in a block's estimate.
+    private static final double HISTORY_WEIGHT = .5;
+
     private final ArrayList<TorqueBlock> commands = new ArrayList<TorqueBlock>();
+    private final ArrayList<BlockInfo> blockInfo = new ArrayList<BlockInfo>();
     public boolean ended = false;
     private int blockIndex = 0;
 
+    private TorqueBlock activeBlock = null;
+    private double blockStart = 0;
+    private DoubleSupplier timeRemaining = DriverStation::getMatchTime;
+
     public TorqueSequence() {}
 
     protected void exit() {
@@ -35,17 +61,97 @@ public abstract class TorqueSequence {
 
     // loops might be able to have local variable marked final
     public final void run() {
+        if (activeBlock == null)
+            startBlock();
         if (blockIndex < commands.size()) {
             boolean blockEnded = true;
-            for (TorqueCommand command : commands.get(blockIndex))
+            for (TorqueCommand command : activeBlock)
                 if (!command.run())
                     blockEnded = false;
             if (blockEnded)
-                blockIndex++;
+                finishBlock();
         } else if (!ended)
             ended = true;
     }
 
+    // Pick the block to run at blockIndex, skipping or swapping optional blocks that won't fit.
+    private void startBlock() {
+        while (blockIndex < commands.size()) {
+            final BlockInfo info = blockInfo.get(blockIndex);
+            if (!info.optional) {
+                activeBlock = commands.get(blockIndex);
+                break;
+            }
+            final double remaining = timeRemaining.getAsDouble();
+            final double required = getRequiredEstimate(blockIndex + 1);
+            if (remaining < 0 || fits(info.estimate, required, remaining)) {
+                activeBlock = commands.get(blockIndex);
+                break;
+            }
+            if (info.alternate != null && fits(info.alternateEstimate, required, remaining)) {
+                activeBlock = info.alternate;
+                break;
+            }
+            blockIndex++;
+        }
+        blockStart = TorqueTime.now();
+    }
+
+    private void finishBlock() {
+        final BlockInfo info = blockInfo.get(blockIndex);
+        final double duration = TorqueTime.now() - blockStart;
+        if (activeBlock == info.alternate)
+            info.alternateEstimate = blend(info.alternateEstimate, duration);
+        else
+            info.estimate = blend(info.estimate, duration);
+        activeBlock = null;
+        blockIndex++;
+    }
+
+    private static boolean fits(final double estimate, final double required, final double remaining) {
+        return Double.isNaN(estimate) || estimate + required <= remaining;
+    }
+
+    private static double blend(final double estimate, final double measured) {
+        return Double.isNaN(estimate) ? measured : estimate + HISTORY_WEIGHT * (measured - estimate);
+    }
+
+    // Sum of the estimates of every required block from index on (unknown blocks count as 0).
+    private double getRequiredEstimate(final int from) {
+        double total = 0;
+        for (int i = from; i < blockInfo.size(); i++) {
+            final BlockInfo info = blockInfo.get(i);
+            if (!info.optional && !Double.isNaN(info.estimate))
+                total += info.estimate;
+        }
+        return total;
+    }
+
+    /**
+     * Predict how long the rest of the sequence takes, counting only required
+     * blocks after the current one.
+     *
+     * @return The predicted seconds remaining.
+     */
+    public final double getPredictedRemaining() {
+        double elapsed = 0, current = 0;
+        if (activeBlock != null && blockIndex < blockInfo.size()) {
+            final BlockInfo info = blockInfo.get(blockIndex);
+            current = activeBlock == info.alternate ? info.alternateEstimate : info.estimate;
+            elapsed = TorqueTime.now() - blockStart;
+        }
+        return (Double.isNaN(current) ? 0 : Math.max(0, current - elapsed)) + getRequiredEstimate(blockIndex + 1);
+    }
+
+    /**
+     * Set where the time left in the period comes from (defaults to
+     * DriverStation.getMatchTime). Negative values mean unknown, in which case
+     * optional blocks always run.
+     */
+    public final void setTimeRemainingSupplier(final DoubleSupplier timeRemaining) {
+        this.timeRemaining = timeRemaining;
+    }
+
     public final boolean hasEnded() {
         return ended;
     }
@@ -53,14 +159,32 @@ public abstract class TorqueSequence {
     public final void reset() {
         ended = false;
         blockIndex = 0;
+        activeBlock = null;
         for (TorqueBlock block : commands)
             for (TorqueCommand command : block)
                 command.reset();
+        for (BlockInfo info : blockInfo)
+            if (info.alternate != null)
+                for (TorqueCommand command : info.alternate)
+                    command.reset();
+    }
+
+    /**
+     * Prepare every command in the sequence ahead of time.
+     */
+    public final void prepare() {
+        for (TorqueBlock block : commands)
+            for (TorqueCommand command : block)
+                command.prepare();
+        for (BlockInfo info : blockInfo)
+            if (info.alternate != null)
+                for (TorqueCommand command : info.alternate)
+                    command.prepare();
     }
 
     public final void resetBlock() {
         ended = false;
-        for (TorqueCommand command : commands.get(blockIndex))
+        for (TorqueCommand command : activeBlock != null ? activeBlock : commands.get(blockIndex))
             command.reset();
     }
 
@@ -70,6 +194,36 @@ public abstract class TorqueSequence {
 
     protected final void addBlock(final TorqueBlock block) {
         commands.add(block);
+        blockInfo.add(new BlockInfo(false, Double.NaN, null, Double.NaN));
+    }
+
+    /**
+     * Add a block that is skipped when the sequence predicts it won't finish
+     * (along with every required block after it) before the period ends.
+     *
+     * @param estimate Expected seconds the block takes, refined by measurements.
+     */
+    protected final void addOptionalBlock(final double estimate, final TorqueBlock block) {
+        commands.add(block);
+        blockInfo.add(new BlockInfo(true, estimate, null, Double.NaN));
+    }
+
+    /**
+     * Add a block that is swapped for a (shorter) alternate when it won't fit,
+     * and skipped entirely when neither fits.
+     */
+    protected final void addOptionalBlock(final double estimate, final TorqueBlock block,
+            final double alternateEstimate, final TorqueBlock alternate) {
+        commands.add(block);
+        blockInfo.add(new BlockInfo(true, estimate, alternate, alternateEstimate));
+    }
+
+    /**
+     * Give the most recently added block an expected duration before it has
+     * ever been measured.
+     */
+    protected final void expect(final double seconds) {
+        blockInfo.get(blockInfo.size() - 1).estimate = seconds;
     }
 
     protected final void addBlock(final TorqueCommand... commands) {
@@ -7,24 +7,37 @@
  */
 package org.texastorque.torquelib.auto.commands;
 
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.function.Supplier;
 
 import org.texastorque.auto.AutoManager;
 import org.texastorque.torquelib.auto.TorqueCommand;
+import org.texastorque.torquelib.auto.TorquePathLoader;
 import org.texastorque.torquelib.auto.marker.Marker;
 import org.texastorque.torquelib.swerve.TorqueSwerveSpeeds;
+import org.texastorque.torquelib.util.TorqueClock;
+import org.texastorque.torquelib.util.TorqueDeployCache;
+import org.littletonrobotics.junction.Logger;
 import com.pathplanner.lib.controllers.PPHolonomicDriveController;
+import com.pathplanner.lib.path.GoalEndState;
 import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.path.Waypoint;
 import com.pathplanner.lib.trajectory.PathPlannerTrajectory;
 import com.pathplanner.lib.trajectory.PathPlannerTrajectoryState;
 import com.pathplanner.lib.config.PIDConstants;
 import com.pathplanner.lib.config.RobotConfig;
+import com.pathplanner.lib.util.DriveFeedforwards;
+import com.pathplanner.lib.util.FlippingUtil;
 import com.pathplanner.lib.util.PPLibTelemetry;
 import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.trajectory.Trajectory;
 import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
 
 public final class TorqueFollowPath extends TorqueCommand {
 
@@ -46,16 +59,157 @@ public final class TorqueFollowPath extends TorqueCommand {
         public double getMaxPathingVelocity();
 
         public void setCurrentTrajectory(final Trajectory trajectory);
+
+        /**
+         * Per-module acceleration and force feedforwards for the trajectory
+         * state being driven to this cycle. Ignored unless overridden.
+         */
+        public default void setPathFeedforwards(final DriveFeedforwards feedforwards) {}
+    }
+
+    /**
+     * What to do when the robot is further off the trajectory than the tracking limits.
+     */
+    public static enum TrackingAction {
+        /** Only measure. */
+        NONE,
+        /** End the command early. */
+        END,
+        /** Hold the trajectory time until the robot catches back up. */
+        PAUSE,
+        /**
+         * Generate a short bridge in the background from the current pose back
+         * onto the trajectory a little ahead of the robot, then continue the
+         * original trajectory from there.
+         */
+        REPLAN
     }
 
+    /**
+     * Tracking error statistics for one run of a path.
+     */
+    public static final class TrackingStats {
+        private static final int MAX_LATENCY_CYCLES = 10;
+
+        private int samples, replans;
+        private double sumSquaredTranslation, maxTranslation, maxHeading;
+
+        // Commanded field speeds of the last cycles and how well each delay explains the actual speeds.
+        private final double[] commandedX = new double[MAX_LATENCY_CYCLES], commandedY = new double[MAX_LATENCY_CYCLES];
+        private final double[] delayError = new double[MAX_LATENCY_CYCLES];
+        private int speedSamples;
+        private double sumPeriod;
+
+        private void add(final double translation, final double heading) {
+            samples++;
+            sumSquaredTranslation += translation * translation;
+            maxTranslation = Math.max(maxTranslation, translation);
+            maxHeading = Math.max(maxHeading, heading);
+        }
+
+        private void addSpeeds(final ChassisSpeeds commanded, final ChassisSpeeds actual, final double period) {
+            final int index = speedSamples % MAX_LATENCY_CYCLES;
+            commandedX[index] = commanded.vxMetersPerSecond;
+            commandedY[index] = commanded.vyMetersPerSecond;
+            speedSamples++;
+            if (speedSamples <= MAX_LATENCY_CYCLES) return;
+
+            sumPeriod += period;
+            for (int delay = 0; delay < MAX_LATENCY_CYCLES; delay++) {
+                final int past = (index - delay + MAX_LATENCY_CYCLES) % MAX_LATENCY_CYCLES;
+                delayError[delay] += Math.hypot(actual.vxMetersPerSecond - commandedX[past],
+                        actual.vyMetersPerSecond - commandedY[past]);
+            }
+        }
+
+        public final int getSamples() { return samples; }
+
+        public final int getReplans() { return replans; }
+
+        public final double getRMSTranslationError() {
+            return samples == 0 ? 0 : Math.sqrt(sumSquaredTranslation / samples);
+        }
+
+        public final double getMaxTranslationError() { return maxTranslation; }
+
+        public final double getMaxHeadingError() { return maxHeading; }
+
+        /**
+         * @return The delay in seconds between commanding a speed and the
+         *         drivebase reaching it, estimated as the number of cycles the
+         *         commanded speeds best line up with the measured ones, or 0
+         *         before there is enough data.
+         */
+        public final double getMeasuredLatency() {
+            final int measured = speedSamples - MAX_LATENCY_CYCLES;
+            if (measured <= 0) return 0;
+            int best = 0;
+            for (int delay = 1; delay < MAX_LATENCY_CYCLES; delay++)
+                if (delayError[delay] < delayError[best]) best = delay;
+            return best * sumPeriod / measured;
+        }
+    }
+
+    public static final PIDConstants DEFAULT_TRANSLATION_GAINS = new PIDConstants(10, 0, 0),
+            DEFAULT_ROTATION_GAINS = new PIDConstants(Math.PI, 0, 0);
+
+    private static final double REPLAN_COOLDOWN = 1;
+    // How far ahead of the robot, along the trajectory, a replan rejoins it and how far ahead to look for the robot.
+    private static final double REJOIN_DISTANCE = .75, REJOIN_SEARCH_TIME = 2;
+    // How far the heading at init() may be from the one prepared for before the trajectory is regenerated.
+    // Loose enough to absorb the heading error the previous path in a sequence ends with.
+    private static final double START_ROTATION_TOLERANCE = Math.toRadians(5);
+    // How far a mirrored blue sample may be from the generated red one before prepare() reports it.
+    private static final double MIRROR_TRANSLATION_TOLERANCE = .01, MIRROR_HEADING_TOLERANCE = Math.toRadians(1);
+
     private final Supplier<PathPlannerPath> pathSupplier;
-    private final Timer timer = new Timer();
+    private TorqueClock clock = TorqueClock.CYCLE;
+    private double startTime;
     private final TorquePathingDrivebase drivebase;
-    private final PPHolonomicDriveController driveController;
+    private PPHolonomicDriveController driveController;
     private final RobotConfig config;
     private Marker[] markers;
 
     private PathPlannerTrajectory trajectory;
+    private PathPlannerPath currentPath;
+    // The trajectory is always generated on the blue side, red samples are mirrored.
+    private boolean flipped;
+
+    private double lookAhead = 0;
+    private boolean resetPose = true;
+    private double maxTranslationError = Double.POSITIVE_INFINITY, maxHeadingError = Double.POSITIVE_INFINITY;
+    private TrackingAction trackingAction = TrackingAction.NONE;
+    private TrackingStats stats = new TrackingStats();
+    private double pausedTime, lastCycleTime, lastReplanTime;
+    private boolean endEarly;
+    private Future<Bridge> replan;
+
+    // A replanned stretch driven instead of the trajectory until it rejoins it at rejoinIndex.
+    private static final class Bridge {
+        private final PathPlannerTrajectory trajectory;
+        private final int rejoinIndex;
+
+        private Bridge(final PathPlannerTrajectory trajectory, final int rejoinIndex) {
+            this.trajectory = trajectory;
+            this.rejoinIndex = rejoinIndex;
+        }
+    }
+
+    private Bridge bridge;
+    // While on a bridge, the trajectory state the robot is closest to, so markers keep their positions.
+    private int progressIndex;
+
+    // Filled in by prepare() while disabled so init() does no loading or generation.
+    private PathPlannerPath preparedSource, preparedFlippedPath;
+    private PathPlannerTrajectory preparedTrajectory;
+    private Rotation2d preparedRotation;
+    private Alliance preparedAlliance;
+    // Drops the prepared state when the shared loader evicts or reloads its path.
+    private final Runnable releasePrepared = () -> {
+        preparedSource = null;
+        preparedFlippedPath = null;
+        preparedTrajectory = null;
+    };
 
     public TorqueFollowPath(final String pathName, final TorquePathingDrivebase drivebase) {
         this(pathName, drivebase, getRobotConfig());
@@ -66,20 +220,11 @@ public final class TorqueFollowPath extends TorqueCommand {
     }
 
     public TorqueFollowPath(final String pathName, final TorquePathingDrivebase drivebase, final RobotConfig config) {
-        this(() -> {
-            try {
-                return PathPlannerPath.fromPathFile(pathName);
-            } catch (Exception e) {
-                System.out.println("Failed to load path: " + pathName);
-            }
-            return null;
-        }, drivebase, config);
+        this(() -> TorquePathLoader.getShared().getPathSlow(pathName), drivebase, config);
     }
 
     public TorqueFollowPath(final Supplier<PathPlannerPath> pathSupplier, final TorquePathingDrivebase drivebase, final RobotConfig config) {
-        driveController = new PPHolonomicDriveController(
-                new PIDConstants(10, 0, 0),
-                new PIDConstants(Math.PI, 0, 0));
+        driveController = new PPHolonomicDriveController(DEFAULT_TRANSLATION_GAINS, DEFAULT_ROTATION_GAINS);
         
         this.drivebase = drivebase;
         this.pathSupplier = pathSupplier;
@@ -92,60 +237,262 @@ public final class TorqueFollowPath extends TorqueCommand {
         return endPosition;
     }
 
+    /**
+     * Generates the blue side trajectory, which serves both alliances,
+     * starting from the rotation the path is drawn to start at (its ideal
+     * starting state, which is where the previous path in an auto leaves the
+     * robot), or the robot's current rotation if it has none. init() reuses
+     * it as long as the robot's heading is within a few degrees of that
+     * rotation, the supplier returns the same path instance and the alliance
+     * has not changed, so every path of a prepared auto starts for free.
+     * Every trajectory generated while disabled on red is also checked:
+     * mirroring its blue samples must match generating on red from the same
+     * starting rotation, so the trajectory checked is the one followed.
+     */
+    @Override
+    public final void prepare() {
+        final PathPlannerPath source = pathSupplier.get();
+        if (source == null) return;
+        final Alliance alliance = getAlliance();
+        prepare(source, alliance, source.getIdealStartingState() != null
+                ? source.getIdealStartingState().rotation()
+                : getStartingRotation(source, drivebase.getPose(), alliance));
+    }
+
+    /**
+     * Prepare as if the robot were at the given pose. Safe to call from a
+     * background thread while the command is not running, so the trajectory
+     * generation for a path planned on the fly stays off the loop.
+     */
+    public final void prepare(final Pose2d pose) {
+        final PathPlannerPath source = pathSupplier.get();
+        if (source == null) return;
+        final Alliance alliance = getAlliance();
+        prepare(source, alliance, getStartingRotation(source, pose, alliance));
+    }
+
+    // Generate from the blue side starting rotation unless already prepared for it.
+    private void prepare(final PathPlannerPath source, final Alliance alliance, final Rotation2d startingRotation) {
+        // A different instance from the supplier means the path was (re)loaded since.
+        if (preparedTrajectory != null && preparedSource == source && preparedAlliance == alliance
+                && Math.abs(preparedRotation.minus(startingRotation).getRadians()) <= START_ROTATION_TOLERANCE)
+            return;
+
+        preparedSource = source;
+        preparedAlliance = alliance;
+        preparedRotation = startingRotation;
+        preparedFlippedPath = source.preventFlipping ? source : source.flipPath();
+        preparedTrajectory = source.generateTrajectory(new ChassisSpeeds(), startingRotation, config);
+        TorquePathLoader.getShared().attach(source, TorquePathLoader.estimateBytes(preparedTrajectory)
+                + (preparedFlippedPath == source ? 0 : TorquePathLoader.estimateBytes(preparedFlippedPath)),
+                releasePrepared);
+
+        // Generating the red trajectory doubles the cost, so only check while there is time to spare.
+        if (shouldFlip(source, alliance) && DriverStation.isDisabled()) {
+            final boolean matches = verifyMirroredSampling(source, preparedTrajectory, startingRotation, config,
+                    MIRROR_TRANSLATION_TOLERANCE, MIRROR_HEADING_TOLERANCE);
+            Logger.recordOutput("TorqueFollowPath/" + (source.name == null ? "Unnamed" : source.name)
+                    + "/MirrorMatches", matches);
+        }
+    }
+
+    // The measured rotation in blue side coordinates, which the trajectory starts from.
+    private static Rotation2d getStartingRotation(final PathPlannerPath source, final Pose2d pose,
+            final Alliance alliance) {
+        final Rotation2d rotation = pose.getRotation();
+        return shouldFlip(source, alliance) ? FlippingUtil.flipFieldRotation(rotation) : rotation;
+    }
+
+    public final boolean isPrepared() {
+        return preparedTrajectory != null && preparedSource == pathSupplier.get() && preparedAlliance == getAlliance();
+    }
+
     @Override
     protected final void init() {
-        PathPlannerPath path = pathSupplier.get();
+        // Reuses the prepared trajectory unless the robot is turned away from the rotation it was prepared for.
+        prepare(drivebase.getPose());
 
-        if (DriverStation.getAlliance().isPresent() && DriverStation.getAlliance().get() == DriverStation.Alliance.Red)
-            path = path.flipPath();
+        final PathPlannerPath path = preparedSource;
+        this.trajectory = preparedTrajectory;
+        this.flipped = shouldFlip(path, preparedAlliance);
 
         driveController.reset(drivebase.getPose(), drivebase.getActualChassisSpeeds());
 
-        this.trajectory = path.generateTrajectory(new ChassisSpeeds(), drivebase.getPose().getRotation(), config);
-        endPosition = trajectory.getEndState().pose;
-
-        PPLibTelemetry.setCurrentPath(path);
+        endPosition = getEndPose();
 
-        final Pose2d startingPose = trajectory.getInitialPose();
+        PPLibTelemetry.setCurrentPath(flipped ? preparedFlippedPath : path);
+        currentPath = path;
 
-        drivebase.setPose(startingPose);
+        // Only move odometry to the start of the path, never overwrite the measured heading.
+        if (resetPose)
+            drivebase.setPose(new Pose2d(sample(0).pose.getTranslation(), drivebase.getPose().getRotation()));
         drivebase.onBeginPathing();
-        timer.restart();
+        startTime = clock.getTime();
+        lastCycleTime = startTime;
+        lastReplanTime = Double.NEGATIVE_INFINITY;
+        pausedTime = 0;
+        endEarly = false;
+        replan = null;
+        bridge = null;
+        stats = new TrackingStats();
     }
 
     @Override
     protected final void continuous() {
-        final double elapsed = timer.get();
+        final double now = clock.getTime();
+        swapReplannedTrajectory(now);
+        leaveFinishedBridge(now);
+
+        final double elapsed = getElapsed();
+        final Pose2d pose = drivebase.getPose();
+        final double progress = getProgress(pose);
 
         if (this.markers == null) this.markers = new Marker[0];
         for (Marker marker : markers) {
-            if (timer.hasElapsed(trajectory.getTotalTimeSeconds() * marker.getRelativePosition()) && !marker.hasRan()) {
+            if (progress >= trajectory.getTotalTimeSeconds() * marker.getRelativePosition() && !marker.hasRan()) {
                 marker.run();
             }
         }
 
-        final PathPlannerTrajectoryState desired = trajectory.sample(elapsed);
+        final PathPlannerTrajectoryState desired = sample(elapsed);
+        final ChassisSpeeds actualSpeeds = ChassisSpeeds.fromRobotRelativeSpeeds(drivebase.getActualChassisSpeeds(),
+                pose.getRotation());
+        final double period = now - lastCycleTime;
+
+        monitorTracking(pose, desired, now);
+
+        // The output takes effect lookAhead seconds from now, so drive from where the robot will be
+        // to where the trajectory will be by then.
+        final PathPlannerTrajectoryState target = lookAhead > 0 ? sample(elapsed + lookAhead) : desired;
+        final Pose2d controlPose = lookAhead > 0 ? predictPose(pose, actualSpeeds, lookAhead) : pose;
 
-        final ChassisSpeeds outputSpeeds = driveController.calculateRobotRelativeSpeeds(drivebase.getPose(), desired);
+        // The controller answers relative to the predicted heading, the drivebase and stats need the current one.
+        final ChassisSpeeds fieldSpeeds = ChassisSpeeds.fromRobotRelativeSpeeds(
+                driveController.calculateRobotRelativeSpeeds(controlPose, target), controlPose.getRotation());
+        final ChassisSpeeds outputSpeeds = ChassisSpeeds.fromFieldRelativeSpeeds(fieldSpeeds, pose.getRotation());
+        drivebase.setPathFeedforwards(target.feedforwards);
+
+        stats.addSpeeds(fieldSpeeds, actualSpeeds, period);
 
         final TorqueSwerveSpeeds realSpeeds = TorqueSwerveSpeeds.fromChassisSpeeds(outputSpeeds);
 
         drivebase.setInputSpeeds(realSpeeds);
 
-        PPLibTelemetry.setCurrentPose(drivebase.getPose());
+        PPLibTelemetry.setCurrentPose(pose);
         PPLibTelemetry.setTargetPose(desired.pose);
     }
 
+    private void monitorTracking(final Pose2d pose, final PathPlannerTrajectoryState desired, final double now) {
+        final double translationError = pose.getTranslation().getDistance(desired.pose.getTranslation());
+        final double headingError = Math.abs(pose.getRotation().minus(desired.pose.getRotation()).getRadians());
+        stats.add(translationError, headingError);
+
+        Logger.recordOutput("TorqueFollowPath/TranslationError", translationError);
+        Logger.recordOutput("TorqueFollowPath/HeadingError", headingError);
+
+        final boolean exceeded = translationError > maxTranslationError || headingError > maxHeadingError;
+
+        if (exceeded && trackingAction == TrackingAction.END)
+            endEarly = true;
+        else if (exceeded && trackingAction == TrackingAction.PAUSE)
+            pausedTime += now - lastCycleTime;
+        else if (exceeded && trackingAction == TrackingAction.REPLAN && replan == null
+                && now - lastReplanTime >= REPLAN_COOLDOWN)
+            startReplan(pose, getProgress(pose));
+
+        lastCycleTime = now;
+    }
+
+    // Time along the original trajectory the robot has reached, which is what markers are placed on.
+    private double getProgress(final Pose2d pose) {
+        if (bridge == null) return getElapsed();
+        progressIndex = findNearestState(toTrajectoryFrame(pose), progressIndex, bridge.rejoinIndex);
+        return trajectory.getState(progressIndex).timeSeconds;
+    }
+
+    private void startReplan(final Pose2d pose, final double progress) {
+        final PathPlannerPath path = currentPath;
+        final PathPlannerTrajectory trajectory = this.trajectory;
+        final boolean flipped = this.flipped;
+        final ChassisSpeeds speeds = drivebase.getActualChassisSpeeds();
+
+        replan = TorqueRunAsync.getExecutor().submit(() -> {
+            // Rejoin a little past the nearest state ahead of the robot, so the remaining waypoints are kept.
+            final List<PathPlannerTrajectoryState> states = trajectory.getStates();
+            final Translation2d position = flipped ? FlippingUtil.flipFieldPosition(pose.getTranslation())
+                    : pose.getTranslation();
+            final int from = findStateAt(trajectory, progress);
+            final int nearest = findNearestState(trajectory, position, from,
+                    findStateAt(trajectory, progress + REJOIN_SEARCH_TIME));
+            int rejoinIndex = nearest;
+            while (rejoinIndex < states.size() - 1
+                    && states.get(rejoinIndex).pose.getTranslation().getDistance(position) < REJOIN_DISTANCE)
+                rejoinIndex++;
+
+            final PathPlannerTrajectoryState rejoin = flipped ? states.get(rejoinIndex).flip()
+                    : states.get(rejoinIndex);
+            final Rotation2d heading = rejoin.pose.getTranslation().minus(pose.getTranslation()).getAngle();
+            final List<Waypoint> waypoints = PathPlannerPath.waypointsFromPoses(
+                    new Pose2d(pose.getTranslation(), heading), new Pose2d(rejoin.pose.getTranslation(), rejoin.heading));
+            final PathPlannerPath replanned = new PathPlannerPath(waypoints, path.getGlobalConstraints(), null,
+                    new GoalEndState(rejoin.linearVelocity, rejoin.pose.getRotation()));
+            replanned.preventFlipping = true;
+            return new Bridge(replanned.generateTrajectory(speeds, pose.getRotation(), config), rejoinIndex);
+        });
+    }
+
+    private void swapReplannedTrajectory(final double now) {
+        if (replan == null || !replan.isDone()) return;
+        try {
+            final Bridge replanned = replan.get();
+            if (bridge == null) progressIndex = findStateAt(trajectory, getElapsed());
+            bridge = replanned;
+            startTime = now;
+            pausedTime = 0;
+            lastReplanTime = now;
+            stats.replans++;
+        } catch (final ExecutionException e) {
+            System.out.println("Failed to replan path: " + e.getCause());
+            lastReplanTime = now;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        replan = null;
+    }
+
+    // Once the bridge is driven, pick the original trajectory back up where the bridge joined it.
+    private void leaveFinishedBridge(final double now) {
+        if (bridge == null || getElapsed() < bridge.trajectory.getTotalTimeSeconds()) return;
+        startTime = now - trajectory.getState(bridge.rejoinIndex).timeSeconds;
+        pausedTime = 0;
+        bridge = null;
+    }
+
     @Override
     protected final boolean endCondition() {
-        return timer.hasElapsed(trajectory.getTotalTimeSeconds());
+        return endEarly || (bridge == null && getElapsed() >= trajectory.getTotalTimeSeconds());
     }
 
     @Override
     protected final void end() {
         drivebase.onEndPathing();
-        timer.stop();
         drivebase.setInputSpeeds(new TorqueSwerveSpeeds());
+
+        if (replan != null) {
+            replan.cancel(true);
+            replan = null;
+        }
+
+        if (currentPath != null && stats.getSamples() > 0) {
+            final String key = "TorqueFollowPath/" + (currentPath.name == null ? "Unnamed" : currentPath.name) + "/";
+            Logger.recordOutput(key + "RMSTranslationError", stats.getRMSTranslationError());
+            Logger.recordOutput(key + "MaxTranslationError", stats.getMaxTranslationError());
+            Logger.recordOutput(key + "MaxHeadingError", stats.getMaxHeadingError());
+            Logger.recordOutput(key + "Replans", stats.getReplans());
+            Logger.recordOutput(key + "MeasuredLatency", stats.getMeasuredLatency());
+            Logger.recordOutput(key + "EndedEarly", endEarly);
+        }
+        currentPath = null;
     }
 
     public TorqueFollowPath withMarkers(final Marker... markers) {
@@ -153,10 +500,170 @@ public final class TorqueFollowPath extends TorqueCommand {
         return this;
     }
 
+    /**
+     * Replace the default path following gains.
+     */
+    public TorqueFollowPath withGains(final PIDConstants translation, final PIDConstants rotation) {
+        this.driveController = new PPHolonomicDriveController(translation, rotation);
+        return this;
+    }
+
+    /**
+     * Leave odometry alone at init instead of moving it to the start of the
+     * path. For paths built on the fly from the robot's own pose estimate,
+     * where the estimate is better than the path's start.
+     */
+    public TorqueFollowPath withoutPoseReset() {
+        this.resetPose = false;
+        return this;
+    }
+
+    public TorqueFollowPath withClock(final TorqueClock clock) {
+        this.clock = clock;
+        return this;
+    }
+
+    /**
+     * Compensate for actuation latency by driving toward the trajectory state
+     * this far ahead, from the pose the robot is predicted to reach by then.
+     * Start from getTrackingStats().getMeasuredLatency().
+     *
+     * @param lookAhead Seconds between setting the speeds and them taking effect.
+     */
+    public TorqueFollowPath withLookAhead(final double lookAhead) {
+        this.lookAhead = lookAhead;
+        return this;
+    }
+
+    /**
+     * Watch how far the robot is from the sampled trajectory state and act
+     * when it is too far off.
+     *
+     * @param maxTranslationError Meters off the sampled pose before acting.
+     * @param maxHeadingError Radians off the sampled heading before acting.
+     * @param action What to do when either limit is exceeded.
+     */
+    public TorqueFollowPath withTrackingLimits(final double maxTranslationError, final double maxHeadingError,
+            final TrackingAction action) {
+        this.maxTranslationError = maxTranslationError;
+        this.maxHeadingError = maxHeadingError;
+        this.trackingAction = action;
+        return this;
+    }
+
+    /**
+     * @return Tracking error statistics for the current (or last) run of the path.
+     */
+    public final TrackingStats getTrackingStats() {
+        return stats;
+    }
+
+    private double getElapsed() {
+        return clock.getTime() - startTime - pausedTime;
+    }
+
+    private PathPlannerTrajectoryState sample(final double time) {
+        // Bridges are generated from the actual pose, so they are already on the right side.
+        if (bridge != null) return bridge.trajectory.sample(time);
+        final PathPlannerTrajectoryState state = trajectory.sample(time);
+        return flipped ? state.flip() : state;
+    }
+
+    private Translation2d toTrajectoryFrame(final Pose2d pose) {
+        return flipped ? FlippingUtil.flipFieldPosition(pose.getTranslation()) : pose.getTranslation();
+    }
+
+    private int findNearestState(final Translation2d position, final int from, final int to) {
+        return findNearestState(trajectory, position, from, to);
+    }
+
+    // Index of the state in [from, to] closest to the position.
+    private static int findNearestState(final PathPlannerTrajectory trajectory, final Translation2d position,
+            final int from, final int to) {
+        int nearest = from;
+        double nearestDistance = Double.POSITIVE_INFINITY;
+        for (int i = from; i <= to; i++) {
+            final double distance = trajectory.getState(i).pose.getTranslation().getDistance(position);
+            if (distance < nearestDistance) {
+                nearest = i;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    // Index of the first state at or after the time, or the last state.
+    private static int findStateAt(final PathPlannerTrajectory trajectory, final double time) {
+        final List<PathPlannerTrajectoryState> states = trajectory.getStates();
+        int low = 0, high = states.size() - 1;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (states.get(middle).timeSeconds < time) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    private static Pose2d predictPose(final Pose2d pose, final ChassisSpeeds fieldSpeeds, final double time) {
+        return new Pose2d(pose.getX() + fieldSpeeds.vxMetersPerSecond * time,
+                pose.getY() + fieldSpeeds.vyMetersPerSecond * time,
+                pose.getRotation().plus(Rotation2d.fromRadians(fieldSpeeds.omegaRadiansPerSecond * time)));
+    }
+
+    private Pose2d getEndPose() {
+        final Pose2d end = trajectory.getEndState().pose;
+        return flipped ? FlippingUtil.flipFieldPose(end) : end;
+    }
+
+    private static boolean shouldFlip(final PathPlannerPath path, final Alliance alliance) {
+        return alliance == Alliance.Red && !path.preventFlipping;
+    }
+
+    /**
+     * Check that mirroring samples of the blue trajectory matches flipping the
+     * path and generating a red trajectory from it.
+     *
+     * @param path The blue side path.
+     * @param config The robot config to generate with.
+     * @param translationTolerance Meters allowed between the two sampled poses.
+     * @param headingTolerance Radians allowed between the two sampled headings.
+     * @return If every sample, taken every 20ms, is within tolerance.
+     */
+    public static boolean verifyMirroredSampling(final PathPlannerPath path, final RobotConfig config,
+            final double translationTolerance, final double headingTolerance) {
+        final Rotation2d rotation = path.getIdealStartingState() != null
+                ? path.getIdealStartingState().rotation()
+                : new Rotation2d();
+        return verifyMirroredSampling(path, path.generateTrajectory(new ChassisSpeeds(), rotation, config), rotation,
+                config, translationTolerance, headingTolerance);
+    }
+
+    // Check an already generated blue trajectory that started from the given rotation.
+    private static boolean verifyMirroredSampling(final PathPlannerPath path, final PathPlannerTrajectory blue,
+            final Rotation2d rotation, final RobotConfig config, final double translationTolerance,
+            final double headingTolerance) {
+        final PathPlannerTrajectory red = path.flipPath().generateTrajectory(new ChassisSpeeds(),
+                FlippingUtil.flipFieldRotation(rotation), config);
+
+        final double totalTime = Math.min(blue.getTotalTimeSeconds(), red.getTotalTimeSeconds());
+        for (double t = 0; t <= totalTime; t += .02) {
+            final Pose2d mirrored = blue.sample(t).flip().pose, generated = red.sample(t).pose;
+            final double translationError = mirrored.getTranslation().getDistance(generated.getTranslation());
+            final double headingError = Math.abs(mirrored.getRotation().minus(generated.getRotation()).getRadians());
+            if (translationError > translationTolerance || headingError > headingTolerance) {
+                System.out.printf("Mirrored sample of %s is off by %.4f m, %.4f rad at %.2f s\n", path.name,
+                        translationError, headingError, t);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Alliance getAlliance() {
+        return DriverStation.getAlliance().orElse(Alliance.Blue);
+    }
+
     public static RobotConfig getRobotConfig() {
-        try {
-            return RobotConfig.fromGUISettings();
-        } catch (Exception e) {}
-        return null;
+        return TorqueDeployCache.getRobotConfig().orElse(null);
     }
 }
\ No newline at end of file
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2011-2023 Texas Torque.
+ *
+ * This file is part of TorqueLib, which is licensed under the MIT license.
+ * For more details, see ./license.txt or write <jus@justusl.com>.
+ */
+package org.texastorque.torquelib.auto.commands;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+import org.texastorque.torquelib.auto.TorqueCommand;
+import org.texastorque.torquelib.util.TorqueClock;
+
+/**
+ * Runs blocking work (path generation, a vision solve, a file load) on a
+ * background thread so it never stalls the loop cycle it starts in. The
+ * command ends when the work completes, fails or times out, and cancels the
+ * work if the command is ended or reset before then.
+ *
+ * Cancelling interrupts the worker thread, so long running tasks should
+ * check Thread.interrupted() (blocking I/O and sleeps already do). The
+ * executor has a fixed number of threads, so a task that ignores the
+ * interrupt delays the tasks queued behind it instead of piling up threads.
+ */
+public final class TorqueRunAsync<T> extends TorqueCommand {
+    /**
+     * Blocking work that can report its progress from 0 to 1.
+     */
+    @FunctionalInterface
+    public static interface Task<T> {
+        public T run(final DoubleConsumer progress) throws Exception;
+    }
+
+    private static final int THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private static final ExecutorService executor = Executors.newFixedThreadPool(THREADS, runnable -> {
+        final Thread thread = new Thread(runnable, "TorqueRunAsync");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**
+     * The shared background executor, low priority daemon threads.
+     */
+    public static final ExecutorService getExecutor() { return executor; }
+
+    private final Task<T> task;
+    private final Consumer<T> onComplete;
+    private final double timeout;
+    private TorqueClock clock = TorqueClock.CYCLE;
+
+    private Future<T> future;
+    private volatile double progress;
+    private double start;
+    private T result;
+
+    public TorqueRunAsync(final Task<T> task) { this(task, (final T t) -> {}); }
+
+    public TorqueRunAsync(final Task<T> task, final Consumer<T> onComplete) { this(task, onComplete, -1); }
+
+    /**
+     * @param task The blocking work.
+     * @param onComplete Called on the loop thread with the result once the work succeeds.
+     * @param timeout Seconds to wait before giving up and cancelling, negative for no timeout.
+     */
+    public TorqueRunAsync(final Task<T> task, final Consumer<T> onComplete, final double timeout) {
+        this.task = task;
+        this.onComplete = onComplete;
+        this.timeout = timeout;
+    }
+
+    public TorqueRunAsync<T> withClock(final TorqueClock clock) {
+        this.clock = clock;
+        return this;
+    }
+
+    @Override
+    protected final void init() {
+        progress = 0;
+        result = null;
+        start = clock.getTime();
+        future = executor.submit(() -> {
+            final T value = task.run((final double p) -> progress = p);
+            progress = 1;
+            return value;
+        });
+    }
+
+    @Override
+    protected final void continuous() {}
+
+    @Override
+    protected final boolean endCondition() {
+        return future.isDone() || (timeout >= 0 && clock.getTime() - start >= timeout);
+    }
+
+    @Override
+    protected final void end() {
+        if (future == null) return;
+        if (!future.isDone()) {
+            future.cancel(true);
+        } else {
+            try {
+                result = future.get();
+                onComplete.accept(result);
+            } catch (final CancellationException e) {
+            } catch (final ExecutionException e) {
+                System.out.println("Async task failed: " + e.getCause());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        future = null;
+    }
+
+    /**
+     * @return The progress reported by the task, from 0 to 1.
+     */
+    public final double getProgress() { return progress; }
+
+    /**
+     * @return The result of the last completed run, or null if it failed, timed out or hasn't finished.
+     */
+    public final T getResult() { return result; }
+}
@@ -31,4 +31,14 @@ public final class TorqueRunSequence extends TorqueCommand {
     protected final void end() {
         sequence.reset();
     }
+
+    @Override
+    public final String getName() {
+        return sequence.getClass().getSimpleName();
+    }
+
+    @Override
+    public final void prepare() {
+        sequence.prepare();
+    }
 }
@@ -37,4 +37,9 @@ public final class TorqueRunWhile extends TorqueCommand {
     protected final void end() {
         command.reset();
     }
+
+    @Override
+    public final void prepare() {
+        command.prepare();
+    }
 }
@@ -72,4 +72,12 @@ public final class TorqueSwitch extends TorqueCommand {
             entry.getValue().reset();
         }
     }
+
+    @Override
+    public final void prepare() {
+        if (onElse != null)
+            onElse.prepare();
+        for (final TorqueSequence option : options.values())
+            option.prepare();
+    }
 }
@@ -9,14 +9,13 @@ package org.texastorque.torquelib.auto.commands;
 import java.util.function.DoubleSupplier;
 
 import org.texastorque.torquelib.auto.TorqueCommand;
-
-import edu.wpi.first.wpilibj.Timer;
+import org.texastorque.torquelib.util.TorqueClock;
 
 public final class TorqueWaitTime extends TorqueCommand {
     private final DoubleSupplier timeSupplier;
-    private double time;
+    private double time, start;
 
-    private Timer timer;
+    private TorqueClock clock = TorqueClock.CYCLE;
     private Runnable command;
 
     public TorqueWaitTime(final double time) {
@@ -36,13 +35,17 @@ public final class TorqueWaitTime extends TorqueCommand {
         this.timeSupplier = timeSupplier;
         this.command = command;
         this.time = 0;
-        this.timer = new Timer();
+    }
+
+    public TorqueWaitTime withClock(final TorqueClock clock) {
+        this.clock = clock;
+        return this;
     }
 
     @Override
     protected final void init() {
         time = timeSupplier.getAsDouble();
-        timer.restart();
+        start = clock.getTime();
     }
 
     @Override
@@ -53,7 +56,7 @@ public final class TorqueWaitTime extends TorqueCommand {
 
     @Override
     protected final boolean endCondition() {
-        return timer.hasElapsed(time);
+        return clock.getTime() - start >= time;
     }
 
     @Override
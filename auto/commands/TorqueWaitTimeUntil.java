@@ -10,32 +10,39 @@ import java.util.function.BooleanSupplier;
 
 import org.texastorque.torquelib.auto.TorqueCommand;
 import org.texastorque.torquelib.auto.marker.Marker;
-
-import edu.wpi.first.wpilibj.Timer;
+import org.texastorque.torquelib.util.TorqueClock;
 
 public final class TorqueWaitTimeUntil extends TorqueCommand {
     private final BooleanSupplier condition;
-	private Timer timer;
-	private double time;
+	private TorqueClock clock = TorqueClock.CYCLE;
+	private double time, start;
 	private Marker[] markers;
 
     public TorqueWaitTimeUntil(final double time, final BooleanSupplier condition, final Marker ...markers) {
 		this.time = time;
         this.condition = condition;
-		this.timer = new Timer();
 		this.markers = markers;
 		if (this.markers == null) this.markers = new Marker[0];
     }
 
+    public TorqueWaitTimeUntil withClock(final TorqueClock clock) {
+        this.clock = clock;
+        return this;
+    }
+
+    private boolean hasElapsed(final double seconds) {
+        return clock.getTime() - start >= seconds;
+    }
+
     @Override
     protected final void init() {
-		timer.restart();
+		start = clock.getTime();
     }
 
     @Override
     protected final void continuous() {
         for (Marker marker : markers) {
-			if (!marker.hasRan() && timer.hasElapsed(time * marker.getRelativePosition())) {
+			if (!marker.hasRan() && hasElapsed(time * marker.getRelativePosition())) {
 				marker.run();
 			}
 		}
@@ -43,7 +50,7 @@ public final class TorqueWaitTimeUntil extends TorqueCommand {
 
     @Override
     protected final boolean endCondition() {
-        return timer.hasElapsed(time) || condition.getAsBoolean();
+        return hasElapsed(time) || condition.getAsBoolean();
     }
 
     @Override
@@ -10,12 +10,12 @@ import java.util.function.BooleanSupplier;
 import java.util.function.DoubleConsumer;
 
 import org.texastorque.torquelib.auto.TorqueCommand;
-
-import edu.wpi.first.wpilibj.Timer;
+import org.texastorque.torquelib.util.TorqueClock;
 
 public final class TorqueWaitUntil extends TorqueCommand {
     private final BooleanSupplier condition;
     private final DoubleConsumer timeConsumer;
+    private TorqueClock clock = TorqueClock.CYCLE;
     private double startTime;
 
     public TorqueWaitUntil(final BooleanSupplier condition) { 
@@ -27,9 +27,14 @@ public final class TorqueWaitUntil extends TorqueCommand {
         this.timeConsumer = timeConsumer;
     }
 
+    public TorqueWaitUntil withClock(final TorqueClock clock) {
+        this.clock = clock;
+        return this;
+    }
+
     @Override
     protected final void init() {
-        startTime = Timer.getFPGATimestamp();
+        startTime = clock.getTime();
     }
 
     @Override
@@ -48,6 +53,6 @@ public final class TorqueWaitUntil extends TorqueCommand {
     }
 
     private void reportTime() {
-        timeConsumer.accept(Timer.getFPGATimestamp() - startTime);
+        timeConsumer.accept(clock.getTime() - startTime);
     }
 }
\ No newline at end of file
@@ -42,4 +42,9 @@ public final class TorqueWhile extends TorqueCommand {
     protected final void end() {
         sequence.reset();
     }
+
+    @Override
+    public final void prepare() {
+        sequence.prepare();
+    }
 }
@@ -8,11 +8,17 @@ package org.texastorque.torquelib.base;
 
 // If you do not have oblog make sure your build.gradle is as follows:
 // https://raw.githubusercontent.com/TexasTorque/Swerve-2023/9df7698cb69a6655d90583ae314c6a44a94c2045/build.gradle
+import java.io.File;
 import java.util.ArrayList;
 
 
 import org.texastorque.torquelib.auto.TorqueAutoManager;
+import org.texastorque.torquelib.auto.TorqueAutoProfiler;
+import org.texastorque.torquelib.auto.TorqueMacroScheduler;
+import org.texastorque.torquelib.auto.TorquePathLoader;
 import org.texastorque.torquelib.control.TorqueDebug;
+import org.texastorque.torquelib.util.TorqueDeployCache;
+import org.texastorque.torquelib.util.TorqueTime;
 import org.littletonrobotics.junction.LoggedRobot;
 import org.littletonrobotics.junction.Logger;
 import org.littletonrobotics.junction.networktables.NT4Publisher;
@@ -58,6 +64,8 @@ public class TorqueRobotBase extends LoggedRobot {
 
     private final ArrayList<TorqueSubsystem> subsystems = new ArrayList<TorqueSubsystem>();
 
+    private final TorqueMacroScheduler macros = new TorqueMacroScheduler();
+
     public TorqueRobotBase(final TorqueInput input, final TorqueStatelessSubsystem lights, final TorqueAutoManager autoManager) {
         super(PERIOD);
         this.input = input;
@@ -76,8 +84,16 @@ public class TorqueRobotBase extends LoggedRobot {
         subsystems.add(subsystem);
     }
 
+    /**
+     * The teleop macro scheduler, run every teleop cycle after input.
+     */
+    public final TorqueMacroScheduler getMacros() {
+        return macros;
+    }
+
     @Override
     public final void robotInit() {
+        TorqueTime.update();
         WebServer.start(5800, Filesystem.getDeployDirectory().getPath());
 
         Logger.recordMetadata("Team", "Texas Torque");
@@ -89,7 +105,10 @@ public class TorqueRobotBase extends LoggedRobot {
 
         Logger.start();
 
+        TorqueDeployCache.getRobotConfig();
         autoManager.loadPaths();
+        System.out.print(TorqueDeployCache.report());
+        System.out.println("Paths: " + TorquePathLoader.getShared());
 
         if (lights != null) {
             lights.initialize(TorqueMode.DISABLED);
@@ -116,9 +135,18 @@ public class TorqueRobotBase extends LoggedRobot {
 
     @Override
     public final void disabledInit() {
+        TorqueTime.update();
         // This makes no sense // subsystems.forEach(subsystem ->
         // subsystem.initialize(TorqueMode.DISABLED));
 
+        macros.cancelAll();
+
+        // Dump the autonomous timeline once the robot is disabled after the match.
+        if (TorqueAutoProfiler.isEnabled() && TorqueAutoProfiler.hasSpans()) {
+            TorqueAutoProfiler.export(new File(Filesystem.getOperatingDirectory(), "autoprofiles"));
+            TorqueAutoProfiler.begin(null);
+        }
+
         if (lights != null) {
             lights.initialize(TorqueMode.DISABLED);
         }
@@ -126,6 +154,8 @@ public class TorqueRobotBase extends LoggedRobot {
 
     @Override
     public final void disabledPeriodic() {
+        TorqueTime.update();
+        autoManager.prepareSelectedSequence();
         // This makes no sense
         subsystems.forEach(subsystem -> subsystem.run(TorqueMode.DISABLED));
         if (lights != null) {
@@ -135,6 +165,8 @@ public class TorqueRobotBase extends LoggedRobot {
 
     @Override
     public final void teleopInit() {
+        TorqueTime.update();
+        macros.cancelAll();
         subsystems.forEach(subsystem -> subsystem.initialize(TorqueMode.TELEOP));
         if (lights != null) {
             lights.initialize(TorqueMode.TELEOP);
@@ -143,7 +175,9 @@ public class TorqueRobotBase extends LoggedRobot {
 
     @Override
     public final void teleopPeriodic() {
+        TorqueTime.update();
         input.update();
+        macros.run();
         subsystems.forEach(subsystem -> subsystem.run(TorqueMode.TELEOP));
         if (lights != null) {
             lights.update(TorqueMode.TELEOP);
@@ -154,6 +188,7 @@ public class TorqueRobotBase extends LoggedRobot {
 
     @Override
     public final void autonomousInit() {
+        TorqueTime.update();
         autoManager.chooseCurrentSequence();
         subsystems.forEach(subsystem -> subsystem.initialize(TorqueMode.AUTO));
         if (lights != null) {
@@ -163,6 +198,7 @@ public class TorqueRobotBase extends LoggedRobot {
 
     @Override
     public final void autonomousPeriodic() {
+        TorqueTime.update();
         autoManager.runCurrentSequence();
         subsystems.forEach(subsystem -> subsystem.run(TorqueMode.AUTO));
         if (lights != null) {
@@ -173,6 +209,7 @@ public class TorqueRobotBase extends LoggedRobot {
 
     @Override
     public final void testInit() {
+        TorqueTime.update();
         subsystems.forEach(subsystem -> subsystem.initialize(TorqueMode.TEST));
         if (lights != null) {
             lights.initialize(TorqueMode.TEST);
@@ -181,6 +218,7 @@ public class TorqueRobotBase extends LoggedRobot {
 
     @Override
     public final void testPeriodic() {
+        TorqueTime.update();
         input.update();
         subsystems.forEach(subsystem -> subsystem.run(TorqueMode.TEST));
         if (lights != null) {
@@ -0,0 +1,36 @@
+/**
+ * Copyright 2011-2023 Texas Torque.
+ *
+ * This file is part of TorqueLib, which is licensed under the MIT license.
+ * For more details, see ./license.txt or write <jus@justusl.com>.
+ */
+package org.texastorque.torquelib.control;
+
+/**
+ * Primitive double to double lookup table with linear interpolation,
+ * clamped to the first and last entry. get() does not allocate.
+ *
+ * Use over TorqueLookUpTable when the values are plain numbers.
+ */
+public final class TorqueDoubleLookUpTable {
+    private final TorqueLookUpAxis axis;
+    private final double[] values;
+
+    /**
+     * @param keys Strictly increasing keys.
+     * @param values The value at each key.
+     */
+    public TorqueDoubleLookUpTable(final double[] keys, final double[] values) {
+        if (keys.length != values.length) throw new IllegalArgumentException("Need one value per key");
+        this.axis = new TorqueLookUpAxis(keys);
+        this.values = values.clone();
+    }
+
+    public final double get(final double key) {
+        final int i = axis.index(key);
+        final double a = values[i];
+        return a + axis.fraction(key, i) * (values[axis.next(i)] - a);
+    }
+
+    public final int size() { return values.length; }
+}
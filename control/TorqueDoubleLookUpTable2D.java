@@ -0,0 +1,46 @@
+/**
+ * Copyright 2011-2023 Texas Torque.
+ *
+ * This file is part of TorqueLib, which is licensed under the MIT license.
+ * For more details, see ./license.txt or write <jus@justusl.com>.
+ */
+package org.texastorque.torquelib.control;
+
+/**
+ * Primitive two key lookup table with bilinear interpolation (e.g. a shooter
+ * map keyed on distance and robot speed), clamped at the edges of the grid.
+ * get() does not allocate.
+ */
+public final class TorqueDoubleLookUpTable2D {
+    private final TorqueLookUpAxis x, y;
+    private final double[] values; // row major, values[ix * ny + iy]
+
+    /**
+     * @param x Strictly increasing first keys.
+     * @param y Strictly increasing second keys.
+     * @param values values[i][j] is the value at x[i], y[j].
+     */
+    public TorqueDoubleLookUpTable2D(final double[] x, final double[] y, final double[][] values) {
+        this.x = new TorqueLookUpAxis(x);
+        this.y = new TorqueLookUpAxis(y);
+        if (values.length != x.length) throw new IllegalArgumentException("Need one row per x key");
+        this.values = new double[x.length * y.length];
+        for (int i = 0; i < x.length; i++) {
+            if (values[i].length != y.length) throw new IllegalArgumentException("Need one value per y key");
+            System.arraycopy(values[i], 0, this.values, i * y.length, y.length);
+        }
+    }
+
+    public final double get(final double xKey, final double yKey) {
+        final int ny = y.size();
+        final int i = x.index(xKey), j = y.index(yKey);
+        final int i1 = x.next(i), j1 = y.next(j);
+        final double fx = x.fraction(xKey, i), fy = y.fraction(yKey, j);
+
+        final double v00 = values[i * ny + j], v01 = values[i * ny + j1];
+        final double v10 = values[i1 * ny + j], v11 = values[i1 * ny + j1];
+
+        final double low = v00 + fy * (v01 - v00), high = v10 + fy * (v11 - v10);
+        return low + fx * (high - low);
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright 2011-2023 Texas Torque.
+ *
+ * This file is part of TorqueLib, which is licensed under the MIT license.
+ * For more details, see ./license.txt or write <jus@justusl.com>.
+ */
+package org.texastorque.torquelib.control;
+
+/**
+ * Primitive three key lookup table with trilinear interpolation, clamped at
+ * the edges of the grid. get() does not allocate.
+ */
+public final class TorqueDoubleLookUpTable3D {
+    private final TorqueLookUpAxis x, y, z;
+    private final double[] values; // values[(ix * ny + iy) * nz + iz]
+
+    /**
+     * @param x Strictly increasing first keys.
+     * @param y Strictly increasing second keys.
+     * @param z Strictly increasing third keys.
+     * @param values values[i][j][k] is the value at x[i], y[j], z[k].
+     */
+    public TorqueDoubleLookUpTable3D(final double[] x, final double[] y, final double[] z,
+            final double[][][] values) {
+        this.x = new TorqueLookUpAxis(x);
+        this.y = new TorqueLookUpAxis(y);
+        this.z = new TorqueLookUpAxis(z);
+        if (values.length != x.length) throw new IllegalArgumentException("Need one plane per x key");
+        this.values = new double[x.length * y.length * z.length];
+        for (int i = 0; i < x.length; i++) {
+            if (values[i].length != y.length) throw new IllegalArgumentException("Need one row per y key");
+            for (int j = 0; j < y.length; j++) {
+                if (values[i][j].length != z.length) throw new IllegalArgumentException("Need one value per z key");
+                System.arraycopy(values[i][j], 0, this.values, (i * y.length + j) * z.length, z.length);
+            }
+        }
+    }
+
+    public final double get(final double xKey, final double yKey, final double zKey) {
+        final int i = x.index(xKey), j = y.index(yKey), k = z.index(zKey);
+        final int i1 = x.next(i), j1 = y.next(j), k1 = z.next(k);
+        final double fx = x.fraction(xKey, i), fy = y.fraction(yKey, j), fz = z.fraction(zKey, k);
+
+        final double c00 = along(i, j, k, k1, fz), c01 = along(i, j1, k, k1, fz);
+        final double c10 = along(i1, j, k, k1, fz), c11 = along(i1, j1, k, k1, fz);
+
+        final double low = c00 + fy * (c01 - c00), high = c10 + fy * (c11 - c10);
+        return low + fx * (high - low);
+    }
+
+    // Interpolates along z at one x, y grid point.
+    private double along(final int i, final int j, final int k, final int k1, final double fz) {
+        final int row = (i * y.size() + j) * z.size();
+        final double a = values[row + k];
+        return a + fz * (values[row + k1] - a);
+    }
+}
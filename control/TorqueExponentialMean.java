@@ -0,0 +1,57 @@
+/**
+ * Copyright 2011-2023 Texas Torque.
+ *
+ * This file is part of TorqueLib, which is licensed under the MIT license.
+ * For more details, see ./license.txt or write <jus@justusl.com>.
+ */
+package org.texastorque.torquelib.control;
+
+/**
+ * Exponentially weighted mean, variance and standard deviation, with the
+ * same API as TorqueRollingMean. Needs no buffer, recent values count more.
+ */
+public final class TorqueExponentialMean {
+    private final double alpha;
+    private boolean empty = true;
+    private double mean = 0, variance = 0;
+
+    /**
+     * @param alpha Weight of each new value, in (0, 1]. 2 / (window + 1)
+     *              roughly matches a TorqueRollingMean of that window.
+     */
+    public TorqueExponentialMean(final double alpha) {
+        if (alpha <= 0 || alpha > 1) throw new IllegalArgumentException("Alpha must be in (0, 1]");
+        this.alpha = alpha;
+    }
+
+    /**
+     * Adds and performs calculation
+     *
+     * @param value The value to add.
+     * @return The mean value.
+     */
+    public final double calculate(final double value) {
+        if (empty) {
+            mean = value;
+            variance = 0;
+            empty = false;
+            return mean;
+        }
+        final double difference = value - mean;
+        final double increment = alpha * difference;
+        mean += increment;
+        variance = (1 - alpha) * (variance + difference * increment);
+        return mean;
+    }
+
+    public final double getMean() { return mean; }
+
+    public final double getVariance() { return variance; }
+
+    public final double getStandardDeviation() { return Math.sqrt(variance); }
+
+    public final void reset() {
+        empty = true;
+        mean = variance = 0;
+    }
+}
@@ -1,5 +1,7 @@
 package org.texastorque.torquelib.control;
 
+import org.texastorque.torquelib.swerve.TorqueSwerveSpeeds;
+
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Translation2d;
 
@@ -8,11 +10,62 @@ public class TorqueFieldZone {
 	private final int id;
 	private Translation2d[] points;
 
+	// Edge i runs from point i to point i + 1, precomputed so contains() does no geometry calls.
+	private final double[] x1, y1, dx, dy, edgeMinY, edgeMaxY, edgeMaxX;
+	// Unit normal and 1 / length^2 of each edge, for the distance queries.
+	private final double[] normalX, normalY, inverseLengthSquared;
+	private final double minX, minY, maxX, maxY;
+
 	public TorqueFieldZone(final int id, final Translation2d ...points) {
 		this.id = id;
 		this.points = points;
+
+		final int n = points.length;
+		x1 = new double[n];
+		y1 = new double[n];
+		dx = new double[n];
+		dy = new double[n];
+		edgeMinY = new double[n];
+		edgeMaxY = new double[n];
+		edgeMaxX = new double[n];
+		normalX = new double[n];
+		normalY = new double[n];
+		inverseLengthSquared = new double[n];
+
+		double lowX = Double.POSITIVE_INFINITY, lowY = Double.POSITIVE_INFINITY;
+		double highX = Double.NEGATIVE_INFINITY, highY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			final Translation2d point1 = points[i];
+			final Translation2d point2 = points[(i + 1) % n];
+			x1[i] = point1.getX();
+			y1[i] = point1.getY();
+			dx[i] = point2.getX() - point1.getX();
+			dy[i] = point2.getY() - point1.getY();
+			edgeMinY[i] = Math.min(point1.getY(), point2.getY());
+			edgeMaxY[i] = Math.max(point1.getY(), point2.getY());
+			edgeMaxX[i] = Math.max(point1.getX(), point2.getX());
+
+			final double lengthSquared = dx[i] * dx[i] + dy[i] * dy[i];
+			final double length = Math.sqrt(lengthSquared);
+			normalX[i] = length == 0 ? 0 : dy[i] / length;
+			normalY[i] = length == 0 ? 0 : -dx[i] / length;
+			inverseLengthSquared[i] = lengthSquared == 0 ? 0 : 1 / lengthSquared;
+
+			lowX = Math.min(lowX, point1.getX());
+			lowY = Math.min(lowY, point1.getY());
+			highX = Math.max(highX, point1.getX());
+			highY = Math.max(highY, point1.getY());
+		}
+		minX = lowX;
+		minY = lowY;
+		maxX = highX;
+		maxY = highY;
 	}
 
+	/**
+	 * The points are copied into precomputed edges on construction, changing
+	 * this array afterwards has no effect on contains().
+	 */
 	public Translation2d[] getPolygon() {
 		return points;
 	}
@@ -21,23 +74,34 @@ public class TorqueFieldZone {
 		return this.id;
 	}
 
-	// Borders excluded
-	// Utilizes ray-casting algorithm
+	public double getMinX() { return minX; }
+
+	public double getMinY() { return minY; }
+
+	public double getMaxX() { return maxX; }
+
+	public double getMaxY() { return maxY; }
+
 	public boolean contains(final Pose2d pose) {
-		final double x = pose.getX();
-		final double y = pose.getY();
-		int count = 0;
+		return contains(pose.getX(), pose.getY());
+	}
+
+	public boolean contains(final Translation2d point) {
+		return contains(point.getX(), point.getY());
+	}
 
-		for (int i=0; i<points.length; i++){
-			Translation2d point1 = points[i];
-			Translation2d point2 = points[(i + 1) % points.length];
+	// Borders excluded
+	// Utilizes ray-casting algorithm
+	public boolean contains(final double x, final double y) {
+		// No edge can be crossed outside the bounding box (left of it the crossings pair up).
+		if (y <= minY || y > maxY || x >= maxX || x < minX) return false;
 
-			if ((y > Math.min(point1.getY(), point2.getY())) && 
-				(y <= Math.max(point1.getY(), point2.getY())) && 
-				(x < Math.max(point1.getX(), point2.getX()))) {
+		int count = 0;
 
-				double xIntersect = (y - point1.getY()) * (point2.getX()-point1.getX()) / (point2.getY() - point1.getY()) + point1.getX();
-				if (point1.getX() == point2.getX() || x <= xIntersect) {
+		for (int i = 0; i < x1.length; i++) {
+			if (y > edgeMinY[i] && y <= edgeMaxY[i] && x < edgeMaxX[i]) {
+				final double xIntersect = (y - y1[i]) * dx[i] / dy[i] + x1[i];
+				if (dx[i] == 0 || x <= xIntersect) {
 					count ++;
 				}
 			}
@@ -45,4 +109,97 @@ public class TorqueFieldZone {
 
 		return count % 2 == 1;
 	}
+
+	/**
+	 * Distance to the border, negative inside the zone.
+	 */
+	public double signedDistance(final double x, final double y) {
+		final double distance = Math.sqrt(distanceSquared(x, y, closestEdge(x, y)));
+		return contains(x, y) ? -distance : distance;
+	}
+
+	public double signedDistance(final Pose2d pose) {
+		return signedDistance(pose.getX(), pose.getY());
+	}
+
+	/**
+	 * @return The point on the border closest to the given point.
+	 */
+	public Translation2d getClosestBoundaryPoint(final Translation2d point) {
+		final int edge = closestEdge(point.getX(), point.getY());
+		if (edge < 0) return point;
+		final double t = projection(point.getX(), point.getY(), edge);
+		return new Translation2d(x1[edge] + t * dx[edge], y1[edge] + t * dy[edge]);
+	}
+
+	/**
+	 * Predict when the robot enters the zone if it keeps its velocity.
+	 *
+	 * @param x The robot x.
+	 * @param y The robot y.
+	 * @param vx Field relative x velocity.
+	 * @param vy Field relative y velocity.
+	 * @return Seconds until the robot crosses into the zone, 0 if it is
+	 *         inside, or infinity if it never will.
+	 */
+	public double timeToEntry(final double x, final double y, final double vx, final double vy) {
+		if (contains(x, y)) return 0;
+		double time = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < x1.length; i++) {
+			// Solve p + v t = a + e u for t >= 0 and u in [0, 1].
+			final double denominator = vx * dy[i] - vy * dx[i];
+			if (denominator == 0) continue;
+			final double ax = x1[i] - x, ay = y1[i] - y;
+			final double t = (ax * dy[i] - ay * dx[i]) / denominator;
+			final double u = (ax * vy - ay * vx) / denominator;
+			if (t >= 0 && t < time && u >= 0 && u <= 1) time = t;
+		}
+		return time;
+	}
+
+	/**
+	 * @param speeds Field relative speeds, see TorqueSwerveSpeeds.toFieldRelativeSpeeds.
+	 */
+	public double timeToEntry(final Pose2d pose, final TorqueSwerveSpeeds speeds) {
+		return timeToEntry(pose.getX(), pose.getY(), speeds.vxMetersPerSecond, speeds.vyMetersPerSecond);
+	}
+
+	/**
+	 * @param speeds Field relative speeds, see TorqueSwerveSpeeds.toFieldRelativeSpeeds.
+	 * @return If the robot is in the zone or will be within the given seconds.
+	 */
+	public boolean willEnterWithin(final Pose2d pose, final TorqueSwerveSpeeds speeds, final double seconds) {
+		return timeToEntry(pose, speeds) <= seconds;
+	}
+
+	// How far along the edge the point projects, clamped to the edge.
+	private double projection(final double x, final double y, final int edge) {
+		final double t = ((x - x1[edge]) * dx[edge] + (y - y1[edge]) * dy[edge]) * inverseLengthSquared[edge];
+		return Math.max(0, Math.min(1, t));
+	}
+
+	private double distanceSquared(final double x, final double y, final int edge) {
+		if (edge < 0) return Double.POSITIVE_INFINITY;
+		final double t = projection(x, y, edge);
+		if (t > 0 && t < 1) {
+			// Within the edge, the distance is along its normal.
+			final double perpendicular = (x - x1[edge]) * normalX[edge] + (y - y1[edge]) * normalY[edge];
+			return perpendicular * perpendicular;
+		}
+		final double ex = x - (x1[edge] + t * dx[edge]), ey = y - (y1[edge] + t * dy[edge]);
+		return ex * ex + ey * ey;
+	}
+
+	private int closestEdge(final double x, final double y) {
+		int closest = -1;
+		double best = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < x1.length; i++) {
+			final double distance = distanceSquared(x, y, i);
+			if (distance < best) {
+				best = distance;
+				closest = i;
+			}
+		}
+		return closest;
+	}
 }
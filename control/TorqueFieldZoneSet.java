@@ -0,0 +1,161 @@
+package org.texastorque.torquelib.control;
+
+import edu.wpi.first.math.geometry.Pose2d;
+
+/**
+ * Answers which of many TorqueFieldZones contain a point in near constant
+ * time. The zones' bounding boxes are binned into a uniform grid, so a query
+ * only ray-casts the few zones whose box overlaps the point's cell. Queries
+ * do not allocate.
+ */
+public class TorqueFieldZoneSet {
+
+    public static final double DEFAULT_CELL_SIZE = .5;
+
+    private final TorqueFieldZone[] zones;
+    private final double originX, originY, inverseCellSize;
+    private final int columns, rows;
+    // Zone indices of cell c are cellZones[cellStart[c]] until cellZones[cellStart[c + 1]].
+    private final int[] cellStart, cellZones;
+
+    public TorqueFieldZoneSet(final TorqueFieldZone ...zones) {
+        this(DEFAULT_CELL_SIZE, zones);
+    }
+
+    /**
+     * @param cellSize Side of a grid cell in meters, around the size of the smallest zone works well.
+     * @param zones The zones, queried in this order.
+     */
+    public TorqueFieldZoneSet(final double cellSize, final TorqueFieldZone ...zones) {
+        if (!(cellSize > 0)) throw new IllegalArgumentException("Cell size must be positive");
+        this.zones = zones.clone();
+
+        double lowX = Double.POSITIVE_INFINITY, lowY = Double.POSITIVE_INFINITY;
+        double highX = Double.NEGATIVE_INFINITY, highY = Double.NEGATIVE_INFINITY;
+        for (final TorqueFieldZone zone : zones) {
+            if (zone.getMinX() > zone.getMaxX()) continue;
+            lowX = Math.min(lowX, zone.getMinX());
+            lowY = Math.min(lowY, zone.getMinY());
+            highX = Math.max(highX, zone.getMaxX());
+            highY = Math.max(highY, zone.getMaxY());
+        }
+        final boolean empty = lowX > highX;
+        originX = empty ? 0 : lowX;
+        originY = empty ? 0 : lowY;
+        inverseCellSize = 1 / cellSize;
+        columns = empty ? 0 : (int)Math.floor((highX - lowX) * inverseCellSize) + 1;
+        rows = empty ? 0 : (int)Math.floor((highY - lowY) * inverseCellSize) + 1;
+
+        // Count the zones overlapping each cell, then fill them in.
+        cellStart = new int[columns * rows + 1];
+        for (int z = 0; z < zones.length; z++) {
+            final TorqueFieldZone zone = zones[z];
+            if (zone.getMinX() > zone.getMaxX()) continue;
+            for (int r = row(zone.getMinY()); r <= row(zone.getMaxY()); r++)
+                for (int c = column(zone.getMinX()); c <= column(zone.getMaxX()); c++)
+                    cellStart[r * columns + c + 1]++;
+        }
+        for (int cell = 0; cell < columns * rows; cell++) cellStart[cell + 1] += cellStart[cell];
+
+        cellZones = new int[cellStart[columns * rows]];
+        final int[] filled = new int[columns * rows];
+        for (int z = 0; z < zones.length; z++) {
+            final TorqueFieldZone zone = zones[z];
+            if (zone.getMinX() > zone.getMaxX()) continue;
+            for (int r = row(zone.getMinY()); r <= row(zone.getMaxY()); r++) {
+                for (int c = column(zone.getMinX()); c <= column(zone.getMaxX()); c++) {
+                    final int cell = r * columns + c;
+                    cellZones[cellStart[cell] + filled[cell]++] = z;
+                }
+            }
+        }
+    }
+
+    private int column(final double x) {
+        return Math.max(0, Math.min(columns - 1, (int)Math.floor((x - originX) * inverseCellSize)));
+    }
+
+    private int row(final double y) {
+        return Math.max(0, Math.min(rows - 1, (int)Math.floor((y - originY) * inverseCellSize)));
+    }
+
+    // The grid cell holding the point, or -1 outside the grid.
+    private int cell(final double x, final double y) {
+        final double column = Math.floor((x - originX) * inverseCellSize);
+        final double row = Math.floor((y - originY) * inverseCellSize);
+        if (!(column >= 0 && column < columns && row >= 0 && row < rows)) return -1;
+        return (int)row * columns + (int)column;
+    }
+
+    public int size() {
+        return zones.length;
+    }
+
+    public TorqueFieldZone getZone(final int index) {
+        return zones[index];
+    }
+
+    /**
+     * @return The index of the first zone containing the point, or -1.
+     */
+    public int first(final double x, final double y) {
+        final int cell = cell(x, y);
+        if (cell < 0) return -1;
+        for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+            if (zones[cellZones[i]].contains(x, y)) return cellZones[i];
+        }
+        return -1;
+    }
+
+    /**
+     * @return The first zone containing the pose, or null.
+     */
+    public TorqueFieldZone first(final Pose2d pose) {
+        final int index = first(pose.getX(), pose.getY());
+        return index < 0 ? null : zones[index];
+    }
+
+    /**
+     * Find every zone containing the point.
+     *
+     * @param out Filled with the indices of the containing zones, in zone order, up to its length.
+     * @return The number of containing zones.
+     */
+    public int query(final double x, final double y, final int[] out) {
+        final int cell = cell(x, y);
+        if (cell < 0) return 0;
+        int count = 0;
+        for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+            if (zones[cellZones[i]].contains(x, y)) {
+                if (count < out.length) out[count] = cellZones[i];
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return If the pose is in any zone.
+     */
+    public boolean any(final Pose2d pose) {
+        return first(pose.getX(), pose.getY()) >= 0;
+    }
+
+    /**
+     * First zone of many points at once.
+     *
+     * @param out Filled with the index of the first zone containing each point, or -1.
+     */
+    public void first(final double[] x, final double[] y, final int[] out) {
+        for (int i = 0; i < out.length; i++) out[i] = first(x[i], y[i]);
+    }
+
+    /**
+     * First zone of many poses at once.
+     *
+     * @param out Filled with the index of the first zone containing each pose, or -1.
+     */
+    public void first(final Pose2d[] poses, final int[] out) {
+        for (int i = 0; i < out.length; i++) out[i] = first(poses[i].getX(), poses[i].getY());
+    }
+}
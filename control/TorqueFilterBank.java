@@ -0,0 +1,192 @@
+/**
+ * Copyright 2011-2023 Texas Torque.
+ *
+ * This file is part of TorqueLib, which is licensed under the MIT license.
+ * For more details, see ./license.txt or write <jus@justusl.com>.
+ */
+package org.texastorque.torquelib.control;
+
+import org.texastorque.torquelib.util.TorqueClock;
+
+/**
+ * Filters many channels (e.g. every swerve module or sensor of a mechanism)
+ * in one call, from a double[] input into a double[] output.
+ *
+ * State is kept as structure of arrays, one array element per channel, and
+ * every filter is a flat loop over the channels that the JIT can unroll and
+ * auto-vectorize. No allocation after construction.
+ */
+public final class TorqueFilterBank {
+    public static enum Kind {
+        /** Rolling mean over a window, like TorqueRollingMean. */
+        MEAN,
+        /** Exponential moving average. */
+        EMA,
+        /** Rate limit, like TorqueSlewLimiter. */
+        SLEW,
+        /** Rolling median over a window, like TorqueRollingMedian. */
+        MEDIAN
+    }
+
+    private final Kind kind;
+    private final int channels;
+
+    // MEAN: ring of window rows of channels, running sums per channel.
+    private final int window;
+    private final double[] ring, sums;
+    private int size = 0, head = 0, sinceResum = 0;
+
+    // EMA and SLEW: the last output per channel.
+    private final double alpha, limitAsc, limitDesc;
+    private final double[] state;
+    private final TorqueClock clock;
+    private boolean started = false;
+    private double lastTime;
+
+    // MEDIAN: heaps don't vectorize, so one quantile per channel.
+    private final TorqueRollingQuantile[] medians;
+
+    /**
+     * @param channels The number of channels.
+     * @param window The number of most recent values to average.
+     */
+    public static final TorqueFilterBank mean(final int channels, final int window) {
+        return new TorqueFilterBank(Kind.MEAN, channels, window, 0, 0, 0, null);
+    }
+
+    /**
+     * @param channels The number of channels.
+     * @param alpha Weight of each new value, in (0, 1].
+     */
+    public static final TorqueFilterBank ema(final int channels, final double alpha) {
+        if (alpha <= 0 || alpha > 1) throw new IllegalArgumentException("Alpha must be in (0, 1]");
+        return new TorqueFilterBank(Kind.EMA, channels, 0, alpha, 0, 0, null);
+    }
+
+    /**
+     * @param channels The number of channels.
+     * @param limit The max units-per-second.
+     */
+    public static final TorqueFilterBank slew(final int channels, final double limit) {
+        return slew(channels, limit, limit, TorqueClock.CYCLE);
+    }
+
+    /**
+     * @param channels The number of channels.
+     * @param limitAsc The max units-per-second increasing absolutely.
+     * @param limitDesc The max units-per-second descending absolutely.
+     * @param clock The clock to measure time between calls with.
+     */
+    public static final TorqueFilterBank slew(final int channels, final double limitAsc, final double limitDesc,
+            final TorqueClock clock) {
+        return new TorqueFilterBank(Kind.SLEW, channels, 0, 0, limitAsc, limitDesc, clock);
+    }
+
+    /**
+     * @param channels The number of channels.
+     * @param window The number of most recent values to take the median of.
+     */
+    public static final TorqueFilterBank median(final int channels, final int window) {
+        return new TorqueFilterBank(Kind.MEDIAN, channels, window, 0, 0, 0, null);
+    }
+
+    private TorqueFilterBank(final Kind kind, final int channels, final int window, final double alpha,
+            final double limitAsc, final double limitDesc, final TorqueClock clock) {
+        if (channels < 1) throw new IllegalArgumentException("Need at least 1 channel");
+        if ((kind == Kind.MEAN || kind == Kind.MEDIAN) && window < 1)
+            throw new IllegalArgumentException("Window must be at least 1");
+        this.kind = kind;
+        this.channels = channels;
+        this.window = window;
+        this.alpha = alpha;
+        this.limitAsc = limitAsc;
+        this.limitDesc = limitDesc;
+        this.clock = clock;
+
+        ring = kind == Kind.MEAN ? new double[window * channels] : null;
+        sums = kind == Kind.MEAN ? new double[channels] : null;
+        state = kind == Kind.EMA || kind == Kind.SLEW ? new double[channels] : null;
+        medians = kind == Kind.MEDIAN ? new TorqueRollingQuantile[channels] : null;
+        if (medians != null)
+            for (int c = 0; c < channels; c++) medians[c] = new TorqueRollingQuantile(window, .5);
+    }
+
+    /**
+     * Filter one sample of every channel.
+     *
+     * @param input One value per channel.
+     * @param output Filled with one filtered value per channel, may be input.
+     */
+    public final void calculate(final double[] input, final double[] output) {
+        if (input.length < channels || output.length < channels)
+            throw new IllegalArgumentException("Expected " + channels + " channels");
+        if (kind == Kind.MEAN)
+            calculateMean(input, output);
+        else if (kind == Kind.EMA)
+            calculateEMA(input, output);
+        else if (kind == Kind.SLEW)
+            calculateSlew(input, output);
+        else
+            for (int c = 0; c < channels; c++) output[c] = medians[c].calculate(input[c]);
+    }
+
+    private void calculateMean(final double[] input, final double[] output) {
+        final int row = head * channels;
+        if (size == window) {
+            for (int c = 0; c < channels; c++) sums[c] += input[c] - ring[row + c];
+        } else {
+            size++;
+            for (int c = 0; c < channels; c++) sums[c] += input[c];
+        }
+        System.arraycopy(input, 0, ring, row, channels);
+        head = head + 1 == window ? 0 : head + 1;
+
+        // Recompute the sums once per window to bound drift.
+        if (++sinceResum >= window) {
+            for (int c = 0; c < channels; c++) sums[c] = 0;
+            for (int r = 0; r < size * channels; r += channels)
+                for (int c = 0; c < channels; c++) sums[c] += ring[r + c];
+            sinceResum = 0;
+        }
+
+        final double scale = 1. / size;
+        for (int c = 0; c < channels; c++) output[c] = sums[c] * scale;
+    }
+
+    private void calculateEMA(final double[] input, final double[] output) {
+        if (!started) {
+            System.arraycopy(input, 0, state, 0, channels);
+            started = true;
+        } else {
+            for (int c = 0; c < channels; c++) state[c] += alpha * (input[c] - state[c]);
+        }
+        System.arraycopy(state, 0, output, 0, channels);
+    }
+
+    private void calculateSlew(final double[] input, final double[] output) {
+        final double time = clock.getTime();
+        final double dt = started ? time - lastTime : 0;
+        started = true;
+        lastTime = time;
+
+        final double maxAsc = limitAsc * dt, maxDesc = limitDesc * dt;
+        for (int c = 0; c < channels; c++) {
+            final double last = state[c], difference = input[c] - last;
+            final double max = Math.abs(input[c]) > Math.abs(last) ? maxAsc : maxDesc;
+            state[c] = last + Math.max(-max, Math.min(max, difference));
+        }
+        System.arraycopy(state, 0, output, 0, channels);
+    }
+
+    public final Kind getKind() { return kind; }
+
+    public final int getChannels() { return channels; }
+
+    public final void reset() {
+        size = head = sinceResum = 0;
+        started = false;
+        if (sums != null) for (int c = 0; c < channels; c++) sums[c] = 0;
+        if (state != null) for (int c = 0; c < channels; c++) state[c] = 0;
+        if (medians != null) for (final TorqueRollingQuantile median : medians) median.reset();
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright 2011-2023 Texas Torque.
+ *
+ * This file is part of TorqueLib, which is licensed under the MIT license.
+ * For more details, see ./license.txt or write <jus@justusl.com>.
+ */
+package org.texastorque.torquelib.control;
+
+/**
+ * One sorted key axis of a primitive lookup table. Finds the interval a
+ * value falls in with a branch-light binary search, or by direct indexing
+ * when the keys are evenly spaced. Values past either end clamp to it.
+ */
+final class TorqueLookUpAxis {
+    private static final double UNIFORM_TOLERANCE = 1e-9;
+
+    private final double[] keys;
+    private final boolean uniform;
+    private final double first, inverseStep;
+
+    /**
+     * @param keys Strictly increasing keys, copied.
+     */
+    TorqueLookUpAxis(final double[] keys) {
+        if (keys.length == 0) throw new IllegalArgumentException("Lookup table axis needs at least one key");
+        for (int i = 1; i < keys.length; i++)
+            if (!(keys[i] > keys[i - 1]))
+                throw new IllegalArgumentException("Lookup table keys must be strictly increasing");
+        this.keys = keys.clone();
+
+        first = keys[0];
+        final double step = keys.length > 1 ? (keys[keys.length - 1] - first) / (keys.length - 1) : 0;
+        boolean even = keys.length > 1;
+        for (int i = 1; i < keys.length && even; i++)
+            even = Math.abs(keys[i] - (first + i * step)) <= UNIFORM_TOLERANCE * Math.max(1, Math.abs(keys[i]));
+        uniform = even;
+        inverseStep = even ? 1 / step : 0;
+    }
+
+    int size() { return keys.length; }
+
+    double key(final int index) { return keys[index]; }
+
+    boolean isUniform() { return uniform; }
+
+    /**
+     * @return The lower index of the interval containing the value, in [0, size - 2]
+     *         (0 for a single key).
+     */
+    int index(final double value) {
+        final int intervals = keys.length - 1;
+        if (intervals <= 0) return 0;
+        if (uniform) {
+            final int index = (int)((value - first) * inverseStep);
+            return Math.max(0, Math.min(intervals - 1, index));
+        }
+        int base = 0, length = intervals;
+        while (length > 1) {
+            final int half = length >>> 1;
+            base = keys[base + half] <= value ? base + half : base;
+            length -= half;
+        }
+        return base;
+    }
+
+    /**
+     * @return How far the value is between index and index + 1, clamped to [0, 1].
+     */
+    double fraction(final double value, final int index) {
+        if (keys.length == 1) return 0;
+        final double fraction = (value - keys[index]) / (keys[index + 1] - keys[index]);
+        return Math.max(0, Math.min(1, fraction));
+    }
+
+    /**
+     * @return The index after index, or index itself for a single key.
+     */
+    int next(final int index) { return keys.length == 1 ? index : index + 1; }
+}
@@ -6,30 +6,31 @@
  */
 package org.texastorque.torquelib.control;
 
-import java.util.LinkedList;
-import java.util.Queue;
-
 /**
- * Rolling median
+ * Rolling window of booleans.
  *
- * o(nlogn)
+ * O(1) and allocation free: the window is a ring of bits packed into longs
+ * with a maintained count of true bits, so portion, any and all never scan.
  *
  * @author Jack Pittenger
  * @author Justus Languell
  */
 public final class TorquePersistentBoolean {
     private final int window;
-    private final Queue<Boolean> values;
+    private final long[] bits;
+    private int size = 0, head = 0, trues = 0;
+    private int run = 0;
+    private boolean last = false, latched = false;
 
     /**
-     * Constructs a new rolling median class, specifying the window size.
+     * Constructs a new persistent boolean, specifying the window size.
      *
-     * @param window The window size for each section (twice is the amount
-     *               stored).
+     * @param window The number of most recent values to keep.
      */
     public TorquePersistentBoolean(final int window) {
+        if (window < 1) throw new IllegalArgumentException("Window must be at least 1");
         this.window = window;
-        values = new LinkedList<>();
+        bits = new long[(window + 63) >>> 6];
     }
 
     /**
@@ -38,8 +39,23 @@ public final class TorquePersistentBoolean {
      * @param value The value to add.
      */
     public final void add(final boolean value) {
-        if (values.size() >= window) values.poll();
-        values.add(value);
+        final int word = head >>> 6;
+        final long mask = 1L << head; // shifts use the low 6 bits
+        if (size == window) {
+            if ((bits[word] & mask) != 0) trues--;
+        } else {
+            size++;
+        }
+        if (value) {
+            bits[word] |= mask;
+            trues++;
+        } else {
+            bits[word] &= ~mask;
+        }
+        head = head + 1 == window ? 0 : head + 1;
+
+        run = size > 1 && value == last ? Math.min(run, Integer.MAX_VALUE - 1) + 1 : 1;
+        last = value;
     }
 
     public final boolean any() { return any(true); }
@@ -54,8 +70,47 @@ public final class TorquePersistentBoolean {
 
     /**
      * Calculates the % of window that is "value".
+     *
+     * @return The portion, or NaN if nothing was added.
      */
     public final double portion(final boolean value) {
-        return values.stream().mapToInt(v -> v ? 1 : 0).sum() / (double)values.size();
+        return (value ? trues : size - trues) / (double)size;
+    }
+
+    /**
+     * @return How many of the latest values in a row equal "value".
+     */
+    public final int consecutive(final boolean value) {
+        return size > 0 && last == value ? run : 0;
+    }
+
+    /**
+     * Debounce: are the latest count values all true?
+     */
+    public final boolean consecutive(final int count) { return consecutive(true) >= count; }
+
+    /**
+     * Debounce with hysteresis: turns on once the true portion reaches rise,
+     * and back off only once it drops to fall. Call once per add.
+     *
+     * @param rise Portion of true values to turn on at.
+     * @param fall Portion of true values to turn off at, below rise.
+     * @return The latched state.
+     */
+    public final boolean hysteresis(final double rise, final double fall) {
+        final double portion = portion();
+        if (portion >= rise)
+            latched = true;
+        else if (portion <= fall)
+            latched = false;
+        return latched;
+    }
+
+    public final int getSize() { return size; }
+
+    public final void reset() {
+        size = head = trues = run = 0;
+        last = latched = false;
+        for (int i = 0; i < bits.length; i++) bits[i] = 0;
     }
-}
\ No newline at end of file
+}
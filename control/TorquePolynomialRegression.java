@@ -15,9 +15,12 @@ import Jama.QRDecomposition;
  *  @author Maaz Kattangere
  */
 public class TorquePolynomialRegression implements Comparable<TorquePolynomialRegression> {
+    // largest degree fit with the primitive solver, higher degrees use Jama
+    private static final int MAX_PRIMITIVE_DEGREE = 6;
+
     private final String variableName;  // name of the predictor variable
     private int degree;                 // degree of the polynomial regression
-    private Matrix beta;                // the polynomial regression coefficients
+    private final double[] beta;        // the polynomial regression coefficients, tiny ones zeroed
     private double sse;                 // sum of squares due to error
     private double sst;                 // total sum of squares
 
@@ -48,36 +51,21 @@ public class TorquePolynomialRegression implements Comparable<TorquePolynomialRe
         this.degree = degree;
         this.variableName = variableName;
 
+        if (x.length != y.length) throw new IllegalArgumentException("array lengths are not equal");
         int n = x.length;
-        QRDecomposition qr = null;
-        Matrix matrixX = null;
+        double[] coefficients;
 
         // in case Vandermonde matrix does not have full rank, reduce degree until it does
         while (true) {
-
-            // build Vandermonde matrix
-            double[][] vandermonde = new double[n][this.degree+1];
-            for (int i = 0; i < n; i++) {
-                for (int j = 0; j <= this.degree; j++) {
-                    vandermonde[i][j] = Math.pow(x[i], j);
-                }
-            }
-            matrixX = new Matrix(vandermonde);
-
-            // find least squares solution
-            qr = new QRDecomposition(matrixX);
-            if (qr.isFullRank()) break;
+            coefficients = this.degree <= MAX_PRIMITIVE_DEGREE
+                    ? solveSmall(x, y, this.degree + 1)
+                    : solveJama(x, y, this.degree + 1);
+            if (coefficients != null) break;
 
             // decrease degree and try again
             this.degree--;
         }
 
-        // create matrix from vector
-        Matrix matrixY = new Matrix(y, n);
-
-        // linear regression coefficients
-        beta = qr.solve(matrixY);
-
         // mean of y[] values
         double sum = 0.0;
         for (int i = 0; i < n; i++)
@@ -91,8 +79,105 @@ public class TorquePolynomialRegression implements Comparable<TorquePolynomialRe
         }
 
         // variation not accounted for
-        Matrix residuals = matrixX.times(beta).minus(matrixY);
-        sse = residuals.norm2() * residuals.norm2();
+        for (int i = 0; i < n; i++) {
+            double fit = 0.0;
+            for (int j = this.degree; j >= 0; j--)
+                fit = coefficients[j] + (x[i] * fit);
+            double residual = fit - y[i];
+            sse += residual*residual;
+        }
+
+        // to make -0.0 print as 0.0
+        beta = new double[this.degree + 1];
+        for (int j = 0; j <= this.degree; j++)
+            beta[j] = Math.abs(coefficients[j]) < 1E-4 ? 0.0 : coefficients[j];
+    }
+
+    /**
+     * Least squares by Householder QR on primitive arrays, the same algorithm
+     * as Jama's QRDecomposition without the Matrix objects.
+     *
+     * @return the coefficients, or null if the Vandermonde matrix is rank deficient
+     */
+    private static double[] solveSmall(double[] x, double[] y, int terms) {
+        int m = x.length;
+
+        // Vandermonde matrix, column major
+        double[][] qr = new double[terms][m];
+        for (int i = 0; i < m; i++) {
+            double power = 1.0;
+            for (int j = 0; j < terms; j++) {
+                qr[j][i] = power;
+                power *= x[i];
+            }
+        }
+
+        double[] rDiagonal = new double[terms];
+        for (int k = 0; k < terms; k++) {
+            double[] column = qr[k];
+            double norm = 0.0;
+            for (int i = k; i < m; i++)
+                norm = Math.hypot(norm, column[i]);
+            if (norm == 0.0) return null;
+
+            if (column[k] < 0) norm = -norm;
+            for (int i = k; i < m; i++)
+                column[i] /= norm;
+            column[k] += 1.0;
+
+            for (int j = k + 1; j < terms; j++) {
+                double[] other = qr[j];
+                double s = 0.0;
+                for (int i = k; i < m; i++)
+                    s += column[i] * other[i];
+                s = -s / column[k];
+                for (int i = k; i < m; i++)
+                    other[i] += s * column[i];
+            }
+            rDiagonal[k] = -norm;
+        }
+
+        // compute Q^T * y
+        double[] solution = y.clone();
+        for (int k = 0; k < terms; k++) {
+            double[] column = qr[k];
+            double s = 0.0;
+            for (int i = k; i < m; i++)
+                s += column[i] * solution[i];
+            s = -s / column[k];
+            for (int i = k; i < m; i++)
+                solution[i] += s * column[i];
+        }
+
+        // solve R * beta = Q^T * y
+        double[] coefficients = new double[terms];
+        for (int k = terms - 1; k >= 0; k--) {
+            double value = solution[k];
+            for (int j = k + 1; j < terms; j++)
+                value -= coefficients[j] * qr[j][k];
+            coefficients[k] = value / rDiagonal[k];
+        }
+        return coefficients;
+    }
+
+    /**
+     * @return the coefficients, or null if the Vandermonde matrix is rank deficient
+     */
+    private static double[] solveJama(double[] x, double[] y, int terms) {
+        int n = x.length;
+
+        // build Vandermonde matrix
+        double[][] vandermonde = new double[n][terms];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < terms; j++) {
+                vandermonde[i][j] = Math.pow(x[i], j);
+            }
+        }
+
+        // find least squares solution
+        QRDecomposition qr = new QRDecomposition(new Matrix(vandermonde));
+        if (!qr.isFullRank()) return null;
+        return qr.solve(new Matrix(y, n)).getColumnPackedCopy();
     }
 
    /**
@@ -102,9 +187,7 @@ public class TorquePolynomialRegression implements Comparable<TorquePolynomialRe
      * @return the {@code j}th regression coefficient
      */
     public double beta(int j) {
-        // to make -0.0 print as 0.0
-        if (Math.abs(beta.get(j, 0)) < 1E-4) return 0.0;
-        return beta.get(j, 0);
+        return beta[j];
     }
 
    /**
@@ -139,7 +222,7 @@ public class TorquePolynomialRegression implements Comparable<TorquePolynomialRe
         // horner's method
         double y = 0.0;
         for (int j = degree; j >= 0; j--)
-            y = beta(j) + (x * y);
+            y = beta[j] + (x * y);
         return y;
     }
 
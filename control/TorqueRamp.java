@@ -6,7 +6,7 @@
  */
 package org.texastorque.torquelib.control;
 
-import org.texastorque.torquelib.util.TorqueUtil;
+import org.texastorque.torquelib.util.TorqueClock;
 
 /**
  * Returns a certain value that linearly increases over time.
@@ -14,20 +14,33 @@ import org.texastorque.torquelib.util.TorqueUtil;
  * @author Justus Languell
  */
 public final class TorqueRamp {
-    private final double initial, end, slope, NOT_STARTED = -1;
+    private final double initial, end, slope;
+    private final TorqueClock clock;
     private double start;
+    private boolean started = false;
 
     public TorqueRamp(final double time, final double initial, final double end) {
+        this(time, initial, end, TorqueClock.CYCLE);
+    }
+
+    public TorqueRamp(final double time, final double initial, final double end, final TorqueClock clock) {
         this.initial = initial;
         this.end = end;
-        this.slope = (end - start) / time;
-        this.start = NOT_STARTED;
+        this.slope = (end - initial) / time;
+        this.clock = clock;
     }
 
     public final double calculate(final boolean action) {
-        if (!action) return (start = NOT_STARTED) + 1;
+        if (!action) {
+            started = false;
+            return 0;
+        }
 
-        if (start == NOT_STARTED) start = TorqueUtil.time();
-        return Math.min(slope * (TorqueUtil.time() - start) + initial, end);
+        final double time = clock.getTime();
+        if (!started) {
+            start = time;
+            started = true;
+        }
+        return Math.min(slope * (time - start) + initial, end);
     }
 }
@@ -0,0 +1,162 @@
+/**
+ * Copyright 2011-2023 Texas Torque.
+ *
+ * This file is part of TorqueLib, which is licensed under the MIT license.
+ * For more details, see ./license.txt or write <jus@justusl.com>.
+ */
+package org.texastorque.torquelib.control;
+
+/**
+ * Online polynomial regression by recursive least squares. Samples are added
+ * one at a time (e.g. shots as they are taken) and the coefficients update
+ * in O(degree^2) with no allocation, instead of refitting like
+ * TorquePolynomialRegression.
+ *
+ * A forgetting factor below 1 weights old samples down exponentially so the
+ * fit tracks a curve that drifts over a match.
+ */
+public final class TorqueRecursivePolynomialRegression {
+    public static final double DEFAULT_INITIAL_COVARIANCE = 1e6;
+
+    private final int degree, terms;
+    private final double forgettingFactor, initialCovariance;
+
+    private final double[] beta;
+    private final double[] covariance; // terms x terms, row major
+    private final double[] features, gain;
+
+    private int samples;
+    // Forgetting weighted sums for R2, using the error of each sample before it was fit.
+    private double weight, sumY, sumSquaredY, sse;
+
+    /**
+     * @param degree The degree of the polynomial to fit.
+     */
+    public TorqueRecursivePolynomialRegression(final int degree) { this(degree, 1); }
+
+    /**
+     * @param degree The degree of the polynomial to fit.
+     * @param forgettingFactor Weight kept by each older sample per new sample, in (0, 1].
+     */
+    public TorqueRecursivePolynomialRegression(final int degree, final double forgettingFactor) {
+        this(degree, forgettingFactor, DEFAULT_INITIAL_COVARIANCE);
+    }
+
+    /**
+     * @param degree The degree of the polynomial to fit.
+     * @param forgettingFactor Weight kept by each older sample per new sample, in (0, 1].
+     * @param initialCovariance Uncertainty of the initial zero coefficients, larger fits
+     *                          the first samples faster.
+     */
+    public TorqueRecursivePolynomialRegression(final int degree, final double forgettingFactor,
+            final double initialCovariance) {
+        if (degree < 0) throw new IllegalArgumentException("Degree must not be negative");
+        if (forgettingFactor <= 0 || forgettingFactor > 1)
+            throw new IllegalArgumentException("Forgetting factor must be in (0, 1]");
+        this.degree = degree;
+        this.terms = degree + 1;
+        this.forgettingFactor = forgettingFactor;
+        this.initialCovariance = initialCovariance;
+
+        beta = new double[terms];
+        covariance = new double[terms * terms];
+        features = new double[terms];
+        gain = new double[terms];
+        reset();
+    }
+
+    /**
+     * Fit one more data point.
+     *
+     * @param x The value of the predictor variable.
+     * @param y The corresponding value of the response variable.
+     */
+    public final void add(final double x, final double y) {
+        double power = 1;
+        for (int j = 0; j < terms; j++) {
+            features[j] = power;
+            power *= x;
+        }
+
+        // gain = P * phi / (lambda + phi' * P * phi)
+        double denominator = forgettingFactor;
+        for (int i = 0; i < terms; i++) {
+            double sum = 0;
+            for (int j = 0; j < terms; j++) sum += covariance[i * terms + j] * features[j];
+            gain[i] = sum;
+            denominator += features[i] * sum;
+        }
+
+        final double error = y - predict(x);
+        for (int i = 0; i < terms; i++) beta[i] += gain[i] / denominator * error;
+
+        // P = (P - P * phi * phi' * P / denominator) / lambda, kept exactly symmetric.
+        for (int i = 0; i < terms; i++) {
+            for (int j = i; j < terms; j++) {
+                final double value = (covariance[i * terms + j] - gain[i] * gain[j] / denominator) / forgettingFactor;
+                covariance[i * terms + j] = value;
+                covariance[j * terms + i] = value;
+            }
+        }
+
+        samples++;
+        weight = forgettingFactor * weight + 1;
+        sumY = forgettingFactor * sumY + y;
+        sumSquaredY = forgettingFactor * sumSquaredY + y * y;
+        sse = forgettingFactor * sse + error * error;
+    }
+
+    /**
+     * Returns the {@code j}th regression coefficient.
+     */
+    public final double beta(final int j) { return beta[j]; }
+
+    public final int degree() { return degree; }
+
+    public final int getSamples() { return samples; }
+
+    /**
+     * Returns the coefficient of determination <em>R</em><sup>2</sup>, from
+     * the error of each sample before it was fit (so it is conservative).
+     */
+    public final double R2() {
+        if (weight == 0) return 1;
+        final double sst = sumSquaredY - sumY * sumY / weight;
+        if (sst <= 0) return 1;
+        return 1 - sse / sst;
+    }
+
+    /**
+     * Returns the expected response {@code y} given the value of the predictor
+     * variable {@code x}.
+     */
+    public final double predict(final double x) {
+        double y = 0;
+        for (int j = degree; j >= 0; j--) y = beta[j] + x * y;
+        return y;
+    }
+
+    /**
+     * Forget every sample.
+     */
+    public final void reset() {
+        for (int i = 0; i < terms; i++) {
+            beta[i] = 0;
+            for (int j = 0; j < terms; j++) covariance[i * terms + j] = i == j ? initialCovariance : 0;
+        }
+        samples = 0;
+        weight = sumY = sumSquaredY = sse = 0;
+    }
+
+    @Override
+    public final String toString() {
+        final StringBuilder s = new StringBuilder();
+        for (int j = degree; j >= 0; j--) {
+            if (j == 0) s.append(String.format("%.2f ", beta[j]));
+            else if (j == 1) s.append(String.format("%.2f n + ", beta[j]));
+            else s.append(String.format("%.2f n^%d + ", beta[j], j));
+        }
+        s.append(String.format("  (R^2 = %.3f, %d samples)", R2(), samples));
+        return s.toString().replace("+ -", "- ");
+    }
+}
@@ -0,0 +1,244 @@
+/**
+ * Copyright 2011-2023 Texas Torque.
+ *
+ * This file is part of TorqueLib, which is licensed under the MIT license.
+ * For more details, see ./license.txt or write <jus@justusl.com>.
+ */
+package org.texastorque.torquelib.control;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Weighted least squares over any number of predictors, with the model given
+ * as a list of feature functions, e.g. shooter RPM from distance (x[0]) and
+ * battery voltage (x[1]):
+ *
+ *  final TorqueRegression regression = new TorqueRegression(constant(), variable(0),
+ *          power(0, 2), variable(1), product(variable(0), variable(1)));
+ *  final TorqueRegression.Model model = regression.fit(inputs, rpms);
+ *  model.predict(new double[] {distance, voltage});
+ *
+ * Fitting accumulates the normal equations in parallel over the common
+ * fork-join pool, so calibration logs of hundreds of thousands of rows fit
+ * quickly, and solves them by Cholesky decomposition. The resulting Model is
+ * a compact, immutable evaluator that does not allocate.
+ */
+public final class TorqueRegression {
+    private static final int ROWS_PER_TASK = 8192;
+
+    /**
+     * One term of the model, computed from the predictors of a sample.
+     */
+    @FunctionalInterface
+    public static interface Feature {
+        public double apply(final double[] x);
+    }
+
+    public static final Feature constant() { return x -> 1; }
+
+    public static final Feature variable(final int index) { return x -> x[index]; }
+
+    public static final Feature power(final int index, final int exponent) {
+        return x -> {
+            double value = 1;
+            for (int i = 0; i < exponent; i++) value *= x[index];
+            return value;
+        };
+    }
+
+    public static final Feature product(final Feature a, final Feature b) { return x -> a.apply(x) * b.apply(x); }
+
+    /**
+     * Weights for samples in time order that discount each older sample by
+     * the forgetting factor, the newest sample weighing 1.
+     */
+    public static final double[] exponentialWeights(final int samples, final double forgettingFactor) {
+        final double[] weights = new double[samples];
+        double weight = 1;
+        for (int i = samples - 1; i >= 0; i--) {
+            weights[i] = weight;
+            weight *= forgettingFactor;
+        }
+        return weights;
+    }
+
+    /**
+     * A fitted model.
+     */
+    public static final class Model {
+        private final Feature[] features;
+        private final double[] coefficients;
+        private final double r2;
+
+        private Model(final Feature[] features, final double[] coefficients, final double r2) {
+            this.features = features;
+            this.coefficients = coefficients;
+            this.r2 = r2;
+        }
+
+        /**
+         * @param x The predictors of one sample.
+         * @return The expected response.
+         */
+        public final double predict(final double[] x) {
+            double y = 0;
+            for (int j = 0; j < coefficients.length; j++) y += coefficients[j] * features[j].apply(x);
+            return y;
+        }
+
+        /**
+         * @return The coefficient of the {@code j}th feature.
+         */
+        public final double beta(final int j) { return coefficients[j]; }
+
+        /**
+         * @return The weighted coefficient of determination <em>R</em><sup>2</sup>.
+         */
+        public final double R2() { return r2; }
+    }
+
+    private final Feature[] features;
+
+    /**
+     * @param features The terms of the model, one coefficient each.
+     */
+    public TorqueRegression(final Feature... features) {
+        if (features.length == 0) throw new IllegalArgumentException("Need at least one feature");
+        this.features = features.clone();
+    }
+
+    /**
+     * Fit with every sample weighted equally.
+     *
+     * @param x The predictors of each sample.
+     * @param y The response of each sample.
+     */
+    public final Model fit(final double[][] x, final double[] y) { return fit(x, y, null); }
+
+    /**
+     * Fit minimizing the weighted sum of squared errors.
+     *
+     * @param x The predictors of each sample.
+     * @param y The response of each sample.
+     * @param weights The weight of each sample, or null for equal weights.
+     * @throws IllegalArgumentException If the lengths differ or the features are linearly dependent on the data.
+     */
+    public final Model fit(final double[][] x, final double[] y, final double[] weights) {
+        if (x.length != y.length || (weights != null && weights.length != y.length))
+            throw new IllegalArgumentException("Need one response and weight per sample");
+
+        final Sums sums = new Accumulate(x, y, weights, 0, y.length).invoke();
+        final int terms = features.length;
+
+        final double[] coefficients = sums.xty.clone();
+        if (!choleskySolve(sums.xtx, coefficients, terms))
+            throw new IllegalArgumentException("Features are linearly dependent on the data");
+
+        // sse = y'Wy - 2 b'X'Wy + b'X'WXb, from the sums without a second pass over the data.
+        double sse = sums.ytyw;
+        for (int i = 0; i < terms; i++) {
+            double row = 0;
+            for (int j = 0; j < terms; j++) row += sums.xtx[i * terms + j] * coefficients[j];
+            sse += coefficients[i] * (row - 2 * sums.xty[i]);
+        }
+        final double sst = sums.ytyw - sums.yw * sums.yw / sums.w;
+        final double r2 = sst <= 0 ? 1 : 1 - Math.max(0, sse) / sst;
+
+        return new Model(features, coefficients, r2);
+    }
+
+    // Weighted normal equation sums. xtx is the full symmetric matrix, row major.
+    private static final class Sums {
+        private final double[] xtx, xty;
+        private double w, yw, ytyw;
+
+        private Sums(final int terms) {
+            xtx = new double[terms * terms];
+            xty = new double[terms];
+        }
+
+        private Sums add(final Sums other) {
+            for (int i = 0; i < xtx.length; i++) xtx[i] += other.xtx[i];
+            for (int i = 0; i < xty.length; i++) xty[i] += other.xty[i];
+            w += other.w;
+            yw += other.yw;
+            ytyw += other.ytyw;
+            return this;
+        }
+    }
+
+    private final class Accumulate extends RecursiveTask<Sums> {
+        private static final long serialVersionUID = 1L;
+
+        private final double[][] x;
+        private final double[] y, weights;
+        private final int from, to;
+
+        private Accumulate(final double[][] x, final double[] y, final double[] weights, final int from,
+                final int to) {
+            this.x = x;
+            this.y = y;
+            this.weights = weights;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected final Sums compute() {
+            if (to - from > ROWS_PER_TASK) {
+                final int middle = (from + to) >>> 1;
+                final Accumulate left = new Accumulate(x, y, weights, from, middle);
+                left.fork();
+                final Sums right = new Accumulate(x, y, weights, middle, to).compute();
+                return right.add(left.join());
+            }
+
+            final int terms = features.length;
+            final Sums sums = new Sums(terms);
+            final double[] row = new double[terms];
+            for (int s = from; s < to; s++) {
+                final double weight = weights == null ? 1 : weights[s];
+                for (int j = 0; j < terms; j++) row[j] = features[j].apply(x[s]);
+                for (int i = 0; i < terms; i++) {
+                    final double weighted = weight * row[i];
+                    for (int j = i; j < terms; j++) sums.xtx[i * terms + j] += weighted * row[j];
+                    sums.xty[i] += weighted * y[s];
+                }
+                sums.w += weight;
+                sums.yw += weight * y[s];
+                sums.ytyw += weight * y[s] * y[s];
+            }
+            for (int i = 0; i < terms; i++)
+                for (int j = 0; j < i; j++) sums.xtx[i * terms + j] = sums.xtx[j * terms + i];
+            return sums;
+        }
+    }
+
+    // Solves a * x = b in place of b for symmetric positive definite a, leaving a untouched.
+    private static boolean choleskySolve(final double[] a, final double[] b, final int n) {
+        final double[] l = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = a[i * n + j];
+                for (int k = 0; k < j; k++) sum -= l[i * n + k] * l[j * n + k];
+                if (i == j) {
+                    if (!(sum > 1e-12 * Math.max(1, Math.abs(a[i * n + i])))) return false;
+                    l[i * n + i] = Math.sqrt(sum);
+                } else {
+                    l[i * n + j] = sum / l[j * n + j];
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            double sum = b[i];
+            for (int k = 0; k < i; k++) sum -= l[i * n + k] * b[k];
+            b[i] = sum / l[i * n + i];
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            double sum = b[i];
+            for (int k = i + 1; k < n; k++) sum -= l[k * n + i] * b[k];
+            b[i] = sum / l[i * n + i];
+        }
+        return true;
+    }
+}
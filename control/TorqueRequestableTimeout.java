@@ -6,7 +6,7 @@
  */
 package org.texastorque.torquelib.control;
 
-import org.texastorque.torquelib.util.TorqueUtil;
+import org.texastorque.torquelib.util.TorqueClock;
 
 /**
  * Request a time with set() and have calculate() return true
@@ -19,7 +19,12 @@ import org.texastorque.torquelib.util.TorqueUtil;
  */
 public final class TorqueRequestableTimeout {
     public double requested = 0, last = 0;
-    public TorqueRequestableTimeout() {}
+    private boolean started = false;
+    private final TorqueClock clock;
+
+    public TorqueRequestableTimeout() { this(TorqueClock.CYCLE); }
+
+    public TorqueRequestableTimeout(final TorqueClock clock) { this.clock = clock; }
 
     /**
      * Set a timeout and start the clock!
@@ -28,7 +33,8 @@ public final class TorqueRequestableTimeout {
      */
     public final void set(final double requested) {
         this.requested = Math.max(this.requested, requested);
-        last = TorqueUtil.time();
+        last = clock.getTime();
+        started = true;
     }
 
     /**
@@ -37,8 +43,8 @@ public final class TorqueRequestableTimeout {
      * @return If the timeout has yet to elapse or not.
      */
     public final boolean get() {
-        if (requested <= 0 || last <= 0) return false;
-        final double current = TorqueUtil.time();
+        if (requested <= 0 || !started) return false;
+        final double current = clock.getTime();
         requested -= current - last;
         last = current;
         return requested > 0;
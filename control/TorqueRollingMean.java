@@ -6,27 +6,33 @@
  */
 package org.texastorque.torquelib.control;
 
-import java.util.LinkedList;
-import java.util.Queue;
-
 /**
- * Rolling mean
+ * Rolling mean, variance and standard deviation over a fixed window.
  *
+ * O(1) per value with no allocation: values live in a primitive ring buffer
+ * and the mean and sum of squared deviations are updated in place, Welford
+ * style, as values enter and leave the window. Both are recomputed from the
+ * buffer once per window to bound floating point drift, which keeps the
+ * amortized cost O(1), and immediately when the updates cancel so much that
+ * the variance has lost most of its digits, as when a large step in level
+ * leaves the window.
  */
 public final class TorqueRollingMean {
-    private final int window;
+    // Recompute when the variance is this small next to the updates that produced it.
+    private static final double CANCELLATION = 1e-8;
 
-    private final Queue<Double> med;
+    private final double[] values;
+    private int size = 0, head = 0, sinceRecompute = 0;
+    private double mean = 0, squaredDeviations = 0, updateMagnitude = 0;
 
     /**
      * Constructs a new rolling mean class, specifying the window size.
      *
-     * @param window The window size for each section (twice is the amount
-     *               stored).
+     * @param window The number of most recent values to average.
      */
     public TorqueRollingMean(final int window) {
-        this.window = window;
-        med = new LinkedList<>();
+        if (window < 1) throw new IllegalArgumentException("Window must be at least 1");
+        values = new double[window];
     }
 
     /**
@@ -36,15 +42,58 @@ public final class TorqueRollingMean {
      * @return The mean value.
      */
     public final double calculate(final double value) {
-        if (med.size() >= window)
-            med.poll();
-        med.add(value);
+        if (size == values.length) {
+            // Replace the oldest value, the window size stays the same.
+            final double old = values[head], oldMean = mean;
+            mean += (value - old) / size;
+            final double update = (value - old) * (value - mean + old - oldMean);
+            squaredDeviations += update;
+            updateMagnitude += Math.abs(update);
+        } else {
+            size++;
+            final double delta = value - mean;
+            mean += delta / size;
+            final double update = delta * (value - mean);
+            squaredDeviations += update;
+            updateMagnitude += update;
+        }
+        values[head] = value;
+        head = (head + 1) % values.length;
+
+        if (++sinceRecompute >= values.length || squaredDeviations < CANCELLATION * updateMagnitude) recompute();
+        return getMean();
+    }
 
-        double totalVal = 0;
+    /**
+     * @return The mean of the window, or 0 if no values were added.
+     */
+    public final double getMean() { return size == 0 ? 0 : mean; }
 
-        for (double val : med)
-            totalVal += val;
+    /**
+     * @return The population variance of the window.
+     */
+    public final double getVariance() { return size == 0 ? 0 : Math.max(0, squaredDeviations / size); }
+
+    public final double getStandardDeviation() { return Math.sqrt(getVariance()); }
+
+    public final int getSize() { return size; }
+
+    public final void reset() {
+        size = head = sinceRecompute = 0;
+        mean = squaredDeviations = updateMagnitude = 0;
+    }
 
-        return totalVal / med.size();
+    // Two pass recompute from the buffer, the first size slots are always the filled ones.
+    private void recompute() {
+        double sum = 0;
+        for (int i = 0; i < size; i++) sum += values[i];
+        mean = sum / size;
+        squaredDeviations = 0;
+        for (int i = 0; i < size; i++) {
+            final double deviation = values[i] - mean;
+            squaredDeviations += deviation * deviation;
+        }
+        updateMagnitude = squaredDeviations;
+        sinceRecompute = 0;
     }
-}
\ No newline at end of file
+}
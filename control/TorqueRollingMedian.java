@@ -6,32 +6,24 @@
  */
 package org.texastorque.torquelib.control;
 
-import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.Queue;
-
 /**
  * Rolling median
  *
- * o(nlogn)
+ * O(log n), see TorqueRollingQuantile.
  *
  * @author Jack Pittenger
  * @author Justus Languell
  */
 public final class TorqueRollingMedian {
-    private final int window;
-
-    private final Queue<Double> med;
+    private final TorqueRollingQuantile median;
 
     /**
      * Constructs a new rolling median class, specifying the window size.
      *
-     * @param window The window size for each section (twice is the amount
-     *               stored).
+     * @param window The number of most recent values to take the median of.
      */
     public TorqueRollingMedian(final int window) {
-        this.window = window;
-        med = new LinkedList<>();
+        median = new TorqueRollingQuantile(window, .5);
     }
 
     /**
@@ -41,15 +33,8 @@ public final class TorqueRollingMedian {
      * @return The median value.
      */
     public final double calculate(final double value) {
-        if (med.size() >= window) med.poll();
-        med.add(value);
-
-        Double[] vals = med.toArray(new Double[0]);
-        Arrays.sort(vals);
-
-        if (vals.length % 2 == 0)
-            return (vals[vals.length / 2] + vals[vals.length / 2 - 1]) / 2.;
-        else
-            return vals[vals.length / 2];
+        return median.calculate(value);
     }
-}
\ No newline at end of file
+
+    public final void reset() { median.reset(); }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright 2011-2023 Texas Torque.
+ *
+ * This file is part of TorqueLib, which is licensed under the MIT license.
+ * For more details, see ./license.txt or write <jus@justusl.com>.
+ */
+package org.texastorque.torquelib.control;
+
+/**
+ * Rolling quantile over a fixed window.
+ *
+ * O(log n) per value with no allocation after construction. The window is a
+ * primitive ring buffer, and its slots are split between a max heap of the
+ * lowest values and a min heap of the rest, so the quantile is read off the
+ * two heap tops. Each slot remembers its heap position so the value leaving
+ * the window is removed directly.
+ *
+ * Quantiles linearly interpolate between order statistics, so a quantile of
+ * .5 is the usual median of an even sized window.
+ */
+public final class TorqueRollingQuantile {
+    private final double quantile;
+    private final double[] values;
+    private final int[] position;
+    private final boolean[] inLower;
+    private final IndexHeap lower, upper;
+    private int size = 0, head = 0;
+
+    /**
+     * @param window The number of most recent values to keep.
+     * @param quantile The quantile to calculate, in [0, 1].
+     */
+    public TorqueRollingQuantile(final int window, final double quantile) {
+        if (window < 1) throw new IllegalArgumentException("Window must be at least 1");
+        if (quantile < 0 || quantile > 1) throw new IllegalArgumentException("Quantile must be in [0, 1]");
+        this.quantile = quantile;
+        values = new double[window];
+        position = new int[window];
+        inLower = new boolean[window];
+        lower = new IndexHeap(window, true);
+        upper = new IndexHeap(window, false);
+    }
+
+    /**
+     * Adds and performs calculation
+     *
+     * @param value The value to add.
+     * @return The quantile of the window.
+     */
+    public final double calculate(final double value) {
+        final int slot = head;
+        if (size == values.length) {
+            (inLower[slot] ? lower : upper).remove(slot);
+        } else {
+            size++;
+        }
+        values[slot] = value;
+        head = (head + 1) % values.length;
+
+        final boolean toLower = lower.size > 0 ? value <= values[lower.top()]
+                : upper.size == 0 || value <= values[upper.top()];
+        if (toLower) {
+            inLower[slot] = true;
+            lower.push(slot);
+        } else {
+            inLower[slot] = false;
+            upper.push(slot);
+        }
+
+        // The lower heap holds every order statistic up to the quantile.
+        final int target = (int)Math.floor(quantile * (size - 1)) + 1;
+        while (lower.size > target) {
+            final int moved = lower.pop();
+            inLower[moved] = false;
+            upper.push(moved);
+        }
+        while (lower.size < target) {
+            final int moved = upper.pop();
+            inLower[moved] = true;
+            lower.push(moved);
+        }
+        return get();
+    }
+
+    /**
+     * @return The quantile of the window, or 0 if no values were added.
+     */
+    public final double get() {
+        if (size == 0) return 0;
+        final double rank = quantile * (size - 1);
+        final double fraction = rank - Math.floor(rank);
+        final double below = values[lower.top()];
+        if (fraction == 0 || upper.size == 0) return below;
+        return below + fraction * (values[upper.top()] - below);
+    }
+
+    public final int getSize() { return size; }
+
+    public final void reset() {
+        size = head = 0;
+        lower.size = upper.size = 0;
+    }
+
+    // A binary heap of ring buffer slots ordered by their values.
+    private final class IndexHeap {
+        private final int[] heap;
+        private final boolean max;
+        private int size = 0;
+
+        private IndexHeap(final int capacity, final boolean max) {
+            heap = new int[capacity];
+            this.max = max;
+        }
+
+        private int top() { return heap[0]; }
+
+        private void push(final int slot) {
+            set(size, slot);
+            siftUp(size++);
+        }
+
+        private int pop() {
+            final int slot = heap[0];
+            remove(slot);
+            return slot;
+        }
+
+        private void remove(final int slot) {
+            final int index = position[slot];
+            size--;
+            if (index == size) return;
+            final int moved = heap[size];
+            set(index, moved);
+            siftUp(index);
+            siftDown(position[moved]);
+        }
+
+        private boolean above(final int a, final int b) {
+            return max ? values[heap[a]] > values[heap[b]] : values[heap[a]] < values[heap[b]];
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                final int parent = (index - 1) / 2;
+                if (!above(index, parent)) return;
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                final int left = 2 * index + 1, right = left + 1;
+                int best = index;
+                if (left < size && above(left, best)) best = left;
+                if (right < size && above(right, best)) best = right;
+                if (best == index) return;
+                swap(index, best);
+                index = best;
+            }
+        }
+
+        private void swap(final int a, final int b) {
+            final int slot = heap[a];
+            set(a, heap[b]);
+            set(b, slot);
+        }
+
+        private void set(final int index, final int slot) {
+            heap[index] = slot;
+            position[slot] = index;
+        }
+    }
+}
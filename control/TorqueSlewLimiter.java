@@ -6,7 +6,7 @@
  */
 package org.texastorque.torquelib.control;
 
-import org.texastorque.torquelib.util.TorqueUtil;
+import org.texastorque.torquelib.util.TorqueClock;
 
 /**
  * This class implements a slew rate limiter. In a nutshell, this limits the
@@ -17,6 +17,7 @@ import org.texastorque.torquelib.util.TorqueUtil;
  */
 public final class TorqueSlewLimiter {
     private final double limitAsc, limitDesc;
+    private final TorqueClock clock;
 
     private double lastVal, lastTime;
 
@@ -26,10 +27,7 @@ public final class TorqueSlewLimiter {
      *
      * @param limit The max units-per-second
      */
-    public TorqueSlewLimiter(final double limit) {
-        this.limitAsc = limit;
-        this.limitDesc = limit;
-    }
+    public TorqueSlewLimiter(final double limit) { this(limit, limit); }
 
     /**
      * Creates a new TorqueSlewLimiter with a different ascending and descending
@@ -39,8 +37,21 @@ public final class TorqueSlewLimiter {
      * @param limitDesc The max units-per-second descending absolutely
      */
     public TorqueSlewLimiter(final double limitAsc, final double limitDesc) {
+        this(limitAsc, limitDesc, TorqueClock.CYCLE);
+    }
+
+    /**
+     * Creates a new TorqueSlewLimiter with a different ascending and descending
+     * limit, measured with a specific clock.
+     *
+     * @param limitAsc  The max units-per-second increasing absolutely
+     * @param limitDesc The max units-per-second descending absolutely
+     * @param clock     The clock to measure time between calls with
+     */
+    public TorqueSlewLimiter(final double limitAsc, final double limitDesc, final TorqueClock clock) {
         this.limitAsc = limitAsc;
         this.limitDesc = limitDesc;
+        this.clock = clock;
     }
 
     /**
@@ -48,7 +59,7 @@ public final class TorqueSlewLimiter {
      * @return The limited value
      */
     public final double calculate(final double val) {
-        final double t = TorqueUtil.time();
+        final double t = clock.getTime();
         lastVal += Math.signum(val - lastVal) *
                    Math.min(Math.abs(val) > Math.abs(lastVal) ? limitAsc : limitDesc * t - lastTime,
                             Math.abs(val - lastVal));
@@ -6,7 +6,7 @@
  */
 package org.texastorque.torquelib.control;
 
-import org.texastorque.torquelib.util.TorqueUtil;
+import org.texastorque.torquelib.util.TorqueClock;
 
 /**
  * Simple "Take Back Half" controller algorithm implementation.
@@ -17,9 +17,16 @@ import org.texastorque.torquelib.util.TorqueUtil;
  */
 public final class TorqueTakeBackHalf {
     private final double gain;
-    private double tbh = 0, prevErr = 0, output = 0, rate = -1, prevTime = -1; // rate = ∆time
+    private final TorqueClock clock;
+    private double tbh = 0, prevErr = 0, output = 0, rate = -1, prevTime = 0; // rate = ∆time
+    private boolean started = false;
 
-    public TorqueTakeBackHalf(final double gain) { this.gain = gain; }
+    public TorqueTakeBackHalf(final double gain) { this(gain, TorqueClock.CYCLE); }
+
+    public TorqueTakeBackHalf(final double gain, final TorqueClock clock) {
+        this.gain = gain;
+        this.clock = clock;
+    }
 
     public final double calculate(final double error) {
         output += gain * error * updateRate();
@@ -34,9 +41,10 @@ public final class TorqueTakeBackHalf {
     }
 
     public final double updateRate() {
-        final double currTime = TorqueUtil.time();
-        if (prevTime != -1) rate = currTime - prevTime;
+        final double currTime = clock.getTime();
+        if (started) rate = currTime - prevTime;
         prevTime = currTime;
+        started = true;
         return rate;
     }
 }
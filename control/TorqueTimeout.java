@@ -6,7 +6,7 @@
  */
 package org.texastorque.torquelib.control;
 
-import org.texastorque.torquelib.util.TorqueUtil;
+import org.texastorque.torquelib.util.TorqueClock;
 
 /**
  * Controls code execution based on an action and a timeout.
@@ -14,17 +14,27 @@ import org.texastorque.torquelib.util.TorqueUtil;
  * @author Justus Languell
  */
 public final class TorqueTimeout {
-    private final double timeout, NOT_STARTED = -1;
+    private final double timeout;
+    private final TorqueClock clock;
     private double start;
+    private boolean started = false;
 
     /**
      * Create a new TorqueTimeout and specify the timeout.
      *
      * @param timeout The timeout in seconds.
      */
-    public TorqueTimeout(final double timeout) {
+    public TorqueTimeout(final double timeout) { this(timeout, TorqueClock.CYCLE); }
+
+    /**
+     * Create a new TorqueTimeout and specify the timeout and clock.
+     *
+     * @param timeout The timeout in seconds.
+     * @param clock The clock to measure the timeout with.
+     */
+    public TorqueTimeout(final double timeout, final TorqueClock clock) {
         this.timeout = timeout;
-        this.start = NOT_STARTED;
+        this.clock = clock;
     }
 
     /**
@@ -35,9 +45,13 @@ public final class TorqueTimeout {
      */
     public final boolean calculate(final boolean action) {
         if (!action)
-            return (start = NOT_STARTED) != NOT_STARTED; // sets start to -1 and returns false
-                                                         // wastes about 2-3 cpu cycles 😎
-        if (start == NOT_STARTED) start = TorqueUtil.time();
-        return TorqueUtil.time() - start < timeout;
+            return started = false; // clears started and returns false
+
+        final double time = clock.getTime();
+        if (!started) {
+            start = time;
+            started = true;
+        }
+        return time - start < timeout;
     }
 }
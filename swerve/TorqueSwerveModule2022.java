@@ -9,6 +9,7 @@ package org.texastorque.torquelib.swerve;
 
 import org.texastorque.torquelib.motors.TorqueNEO;
 import org.texastorque.torquelib.swerve.base.TorqueSwerveModule;
+import org.texastorque.torquelib.util.TorqueTime;
 
 import com.ctre.phoenix6.hardware.CANcoder;
 import com.revrobotics.spark.config.SparkBaseConfig.IdleMode;
@@ -20,7 +21,6 @@ import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.RobotBase;
-import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
 /**
@@ -107,7 +107,7 @@ public final class TorqueSwerveModule2022 extends TorqueSwerveModule {
 
     private final SimpleMotorFeedforward driveFF;
 
-    private double lastSampledTime = -1;
+    private double lastSampledTime = Double.NaN; // not sampled yet
 
     private SwerveModulePosition aggregatePosition;
     private SwerveModuleState lastState = new SwerveModuleState();
@@ -180,8 +180,8 @@ public final class TorqueSwerveModule2022 extends TorqueSwerveModule {
 
         // If running in simulation
         if (RobotBase.isSimulation()) {
-            final double time = Timer.getFPGATimestamp();
-            if (lastSampledTime == -1) {
+            final double time = TorqueTime.now();
+            if (Double.isNaN(lastSampledTime)) {
                 lastSampledTime = time;
             }
 
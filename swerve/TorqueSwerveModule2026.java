@@ -10,6 +10,7 @@ import org.littletonrobotics.junction.Logger;
 import org.texastorque.torquelib.Debug;
 import org.texastorque.torquelib.motors.TorqueNEO;
 import org.texastorque.torquelib.swerve.base.TorqueSwerveModule;
+import org.texastorque.torquelib.util.TorqueTime;
 
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
 import com.ctre.phoenix6.controls.DutyCycleOut;
@@ -27,7 +28,6 @@ import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.RobotBase;
-import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
 
@@ -194,7 +194,7 @@ public final class TorqueSwerveModule2026 extends TorqueSwerveModule {
     } 
 
     private SwerveModulePosition aggregatePosition = new SwerveModulePosition(0, Rotation2d.fromRadians(0));
-    private double lastSampledTime = -1;
+    private double lastSampledTime = Double.NaN; // not sampled yet
 
     public void setDesiredState(final SwerveModuleState state, final boolean useSmartDrive) {
         state.optimize(getRotation());
@@ -232,8 +232,8 @@ public final class TorqueSwerveModule2026 extends TorqueSwerveModule {
 
         // Debug:
         if (!RobotBase.isReal()) {
-            double time = Timer.getFPGATimestamp();
-            if (lastSampledTime == -1)
+            double time = TorqueTime.now();
+            if (Double.isNaN(lastSampledTime))
                 lastSampledTime = time;
             double deltaTime = time - lastSampledTime;
             lastSampledTime = time;
@@ -9,6 +9,7 @@ package org.texastorque.torquelib.swerve;
 import org.texastorque.torquelib.Debug;
 import org.texastorque.torquelib.motors.TorqueNEO;
 import org.texastorque.torquelib.swerve.base.TorqueSwerveModule;
+import org.texastorque.torquelib.util.TorqueTime;
 
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
 import com.ctre.phoenix6.controls.DutyCycleOut;
@@ -26,7 +27,6 @@ import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.RobotBase;
-import edu.wpi.first.wpilibj.Timer;
 
 /**
  * This is the version of the swerve module that uses a Kraken for driving. 
@@ -168,7 +168,7 @@ public final class TorqueSwerveModuleKraken extends TorqueSwerveModule {
     }
 
     private SwerveModulePosition aggregatePosition = new SwerveModulePosition(0, Rotation2d.fromRadians(0));
-    private double lastSampledTime = -1;
+    private double lastSampledTime = Double.NaN; // not sampled yet
 
     public void setDrivePID (final double p, final double i, final double d) {
         drivePID.setP(p);
@@ -216,8 +216,8 @@ public final class TorqueSwerveModuleKraken extends TorqueSwerveModule {
 
         // Debug:
         if (!RobotBase.isReal()) {
-            double time = Timer.getFPGATimestamp();
-            if (lastSampledTime == -1)
+            double time = TorqueTime.now();
+            if (Double.isNaN(lastSampledTime))
                 lastSampledTime = time;
             double deltaTime = time - lastSampledTime;
             lastSampledTime = time;
@@ -9,6 +9,7 @@ package org.texastorque.torquelib.swerve;
 import org.texastorque.torquelib.Debug;
 import org.texastorque.torquelib.motors.TorqueNEO;
 import org.texastorque.torquelib.swerve.base.TorqueSwerveModule;
+import org.texastorque.torquelib.util.TorqueTime;
 import com.ctre.phoenix6.hardware.CANcoder;
 import com.revrobotics.spark.config.SparkBaseConfig.IdleMode;
 import edu.wpi.first.math.controller.PIDController;
@@ -18,7 +19,6 @@ import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.RobotBase;
-import edu.wpi.first.wpilibj.Timer;
 
 /**
  * Super cool flipped swerve module built in 2023 by Abishek.
@@ -140,7 +140,7 @@ public final class TorqueSwerveModuleNEO extends TorqueSwerveModule {
     }
 
     private SwerveModulePosition aggregatePosition = new SwerveModulePosition(0, Rotation2d.fromRadians(0));
-    private double lastSampledTime = -1;
+    private double lastSampledTime = Double.NaN; // not sampled yet
 
     public void setDesiredState(final SwerveModuleState state, final boolean useSmartDrive) {
         state.optimize(getRotation());
@@ -166,8 +166,8 @@ public final class TorqueSwerveModuleNEO extends TorqueSwerveModule {
 
         // Debug:
         if (!RobotBase.isReal()) {
-            double time = Timer.getFPGATimestamp();
-            if (lastSampledTime == -1)
+            double time = TorqueTime.now();
+            if (Double.isNaN(lastSampledTime))
                 lastSampledTime = time;
             double deltaTime = time - lastSampledTime;
             lastSampledTime = time;
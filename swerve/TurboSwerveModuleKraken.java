@@ -4,6 +4,7 @@ import org.texastorque.torquelib.Debug;
 import org.texastorque.torquelib.motors.TorqueKraken;
 import org.texastorque.torquelib.motors.TorqueNEO;
 import org.texastorque.torquelib.swerve.base.TorqueSwerveModule;
+import org.texastorque.torquelib.util.TorqueTime;
 
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
 import com.ctre.phoenix6.controls.DutyCycleOut;
@@ -21,7 +22,6 @@ import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.RobotBase;
-import edu.wpi.first.wpilibj.Timer;
 
 /**
  * 7492 Turbo Torque 
@@ -142,7 +142,7 @@ public final class TurboSwerveModuleKraken extends TorqueSwerveModule {
     }
 
     private SwerveModulePosition aggregatePosition = new SwerveModulePosition(0, Rotation2d.fromRadians(0));
-    private double lastSampledTime = -1;
+    private double lastSampledTime = Double.NaN; // not sampled yet
 
     public void setDesiredState(final SwerveModuleState state, final boolean useSmartDrive) {
         state.optimize(getRotation());
@@ -178,8 +178,8 @@ public final class TurboSwerveModuleKraken extends TorqueSwerveModule {
 
         // Debug:
         if (!RobotBase.isReal()) {
-            double time = Timer.getFPGATimestamp();
-            if (lastSampledTime == -1)
+            double time = TorqueTime.now();
+            if (Double.isNaN(lastSampledTime))
                 lastSampledTime = time;
             double deltaTime = time - lastSampledTime;
             lastSampledTime = time;
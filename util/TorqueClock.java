@@ -0,0 +1,53 @@
+/**
+ * Copyright 2011-2023 Texas Torque.
+ *
+ * This file is part of TorqueLib, which is licensed under the MIT license.
+ * For more details, see ./license.txt or write <jus@justusl.com>.
+ */
+package org.texastorque.torquelib.util;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * A source of time in seconds. Time based classes take one of these so they
+ * can be driven by the FPGA, the JVM monotonic clock or a manually stepped
+ * simulated clock.
+ *
+ * Everything defaults to CYCLE, which reads the timestamp TorqueTime cached
+ * at the start of the current loop iteration.
+ */
+@FunctionalInterface
+public interface TorqueClock {
+    /**
+     * @return The current time in seconds. Only meaningful relative to another reading.
+     */
+    public double getTime();
+
+    /** The roboRIO FPGA timestamp (one JNI call per read). */
+    public static final TorqueClock FPGA = Timer::getFPGATimestamp;
+
+    /** The JVM monotonic clock, for running off the robot. */
+    public static final TorqueClock MONOTONIC = () -> System.nanoTime() / 1e9;
+
+    /** The per-cycle cached time, see TorqueTime. */
+    public static final TorqueClock CYCLE = TorqueTime::now;
+
+    /**
+     * A clock that only moves when told to, for faster-than-real-time tests
+     * and simulation.
+     */
+    public static final class Simulated implements TorqueClock {
+        private double time;
+
+        public Simulated() { this(0); }
+
+        public Simulated(final double time) { this.time = time; }
+
+        @Override
+        public final double getTime() { return time; }
+
+        public final void step(final double seconds) { time += seconds; }
+
+        public final void set(final double time) { this.time = time; }
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright 2011-2023 Texas Torque.
+ *
+ * This file is part of TorqueLib, which is licensed under the MIT license.
+ * For more details, see ./license.txt or write <jus@justusl.com>.
+ */
+package org.texastorque.torquelib.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import com.pathplanner.lib.config.RobotConfig;
+
+/**
+ * Process-wide cache for artifacts loaded from the deploy directory
+ * (RobotConfig, lookup tables, anything parsed from a file). Each resource is
+ * loaded and validated once on first use and the same instance is shared by
+ * every caller afterwards, so callers must treat it as immutable. Failures
+ * are cached too, so a missing file is reported once instead of retried by
+ * every command that wants it.
+ *
+ * Paths are cached by TorquePathLoader.getShared().
+ */
+public final class TorqueDeployCache {
+    /**
+     * Loads a resource, usually by reading and parsing a deploy file.
+     */
+    @FunctionalInterface
+    public static interface Loader<T> {
+        public T load() throws Exception;
+    }
+
+    private static final class Resource {
+        private final Object value;
+        private final double loadTime;
+        private final String error;
+
+        private Resource(final Object value, final double loadTime, final String error) {
+            this.value = value;
+            this.loadTime = loadTime;
+            this.error = error;
+        }
+    }
+
+    private static final String ROBOT_CONFIG_KEY = "RobotConfig";
+
+    private static final Map<String, Resource> resources = new LinkedHashMap<String, Resource>();
+
+    /**
+     * The PathPlanner GUI robot config, loaded once.
+     */
+    public static final Optional<RobotConfig> getRobotConfig() {
+        return get(ROBOT_CONFIG_KEY, RobotConfig::fromGUISettings, config -> config.massKG > 0);
+    }
+
+    public static final <T> Optional<T> get(final String key, final Loader<T> loader) {
+        return get(key, loader, value -> true);
+    }
+
+    /**
+     * Get a resource, loading it the first time it is asked for.
+     *
+     * @param key Unique name of the resource, usually its file name.
+     * @param loader Loads the resource.
+     * @param validator Rejects a loaded resource that is unusable.
+     * @return The resource, or empty if it failed to load or validate.
+     */
+    @SuppressWarnings("unchecked")
+    public static final synchronized <T> Optional<T> get(final String key, final Loader<T> loader,
+            final Predicate<T> validator) {
+        Resource resource = resources.get(key);
+        if (resource == null) {
+            resource = load(loader, validator);
+            resources.put(key, resource);
+            if (resource.error != null)
+                TorqueUtil.warnf("Failed to load deploy resource %s: %s\n", key, resource.error);
+        }
+        return Optional.ofNullable((T)resource.value);
+    }
+
+    /**
+     * Drop a resource so the next get loads it again.
+     */
+    public static final synchronized void invalidate(final String key) { resources.remove(key); }
+
+    /**
+     * @return One line per resource with its load time, in load order.
+     */
+    public static final synchronized String report() {
+        final StringBuilder sb = new StringBuilder("Deploy resources:\n");
+        double total = 0;
+        for (final Map.Entry<String, Resource> entry : resources.entrySet()) {
+            final Resource resource = entry.getValue();
+            total += resource.loadTime;
+            sb.append(String.format("  %-32s %8.1f ms %s\n", entry.getKey(), resource.loadTime * 1000,
+                    resource.error == null ? "" : "FAILED (" + resource.error + ")"));
+        }
+        sb.append(String.format("  %-32s %8.1f ms\n", "Total", total * 1000));
+        return sb.toString();
+    }
+
+    private static <T> Resource load(final Loader<T> loader, final Predicate<T> validator) {
+        final double start = TorqueTime.live();
+        try {
+            final T value = loader.load();
+            final double time = TorqueTime.live() - start;
+            if (value == null) return new Resource(null, time, "loaded null");
+            if (!validator.test(value)) return new Resource(null, time, "failed validation");
+            return new Resource(value, time, null);
+        } catch (final Exception e) {
+            return new Resource(null, TorqueTime.live() - start, String.valueOf(e.getMessage()));
+        }
+    }
+
+    private TorqueDeployCache() { TorqueUtil.staticConstructor(); }
+}
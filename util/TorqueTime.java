@@ -0,0 +1,87 @@
+/**
+ * Copyright 2011-2023 Texas Torque.
+ *
+ * This file is part of TorqueLib, which is licensed under the MIT license.
+ * For more details, see ./license.txt or write <jus@justusl.com>.
+ */
+package org.texastorque.torquelib.util;
+
+/**
+ * The shared time base. TorqueRobotBase calls update() once at the start of
+ * every loop iteration, and every reader of now() for the rest of that
+ * iteration sees the same timestamp for the cost of one clock read.
+ *
+ * A thread can bind its own clock (e.g. a simulated one per Monte Carlo run),
+ * which overrides the shared cycle time on that thread only.
+ */
+public final class TorqueTime {
+    private static volatile TorqueClock source = TorqueUtil.onRobot ? TorqueClock.FPGA : TorqueClock.MONOTONIC;
+    private static volatile double cycleTime;
+    private static volatile boolean cycling = false;
+
+    private static final ThreadLocal<TorqueClock> bound = new ThreadLocal<TorqueClock>();
+    private static volatile int boundCount = 0;
+
+    /**
+     * @return The current cycle time in seconds, or the live source time if no cycle has started.
+     */
+    public static final double now() {
+        if (boundCount > 0) {
+            final TorqueClock clock = bound.get();
+            if (clock != null) return clock.getTime();
+        }
+        return cycling ? cycleTime : source.getTime();
+    }
+
+    /**
+     * @return The live time from the source, ignoring the cycle cache. Use for measuring durations
+     *         inside a cycle.
+     */
+    public static final double live() {
+        if (boundCount > 0) {
+            final TorqueClock clock = bound.get();
+            if (clock != null) return clock.getTime();
+        }
+        return source.getTime();
+    }
+
+    /**
+     * Cache the time for this loop iteration. Call once per cycle, before anything reads time.
+     */
+    public static final void update() {
+        cycleTime = source.getTime();
+        cycling = true;
+    }
+
+    /**
+     * Stop caching and read the source live again.
+     */
+    public static final void stopCycling() { cycling = false; }
+
+    public static final void setSource(final TorqueClock clock) {
+        source = clock;
+        if (cycling) update();
+    }
+
+    public static final TorqueClock getSource() { return source; }
+
+    /**
+     * Override time on the calling thread only.
+     */
+    public static final synchronized void bind(final TorqueClock clock) {
+        if (bound.get() == null) boundCount++;
+        bound.set(clock);
+    }
+
+    /**
+     * @return The clock bound to the calling thread, or null if it uses the shared time.
+     */
+    public static final TorqueClock getBound() { return boundCount > 0 ? bound.get() : null; }
+
+    public static final synchronized void unbind() {
+        if (bound.get() != null) boundCount--;
+        bound.remove();
+    }
+
+    private TorqueTime() { TorqueUtil.staticConstructor(); }
+}
@@ -11,8 +11,6 @@ import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
-import edu.wpi.first.wpilibj.Timer;
-
 /**
  * Miscellaneous and uncatagorized static functions used throughout the codebase.
  *
@@ -58,10 +56,12 @@ public final class TorqueUtil {
      * A time method that can be used on the robot and
      * on a computer. Should really only be used for relative use.
      *
+     * Reads the per-cycle timestamp from TorqueTime.
+     *
      * @returns The current time in seconds.
      */
     public static final double time() {
-        return onRobot ? Timer.getFPGATimestamp() : System.currentTimeMillis() / 1000.;
+        return TorqueTime.now();
     }
 
     /**
@@ -173,9 +173,9 @@ public final class TorqueUtil {
     }
 
     public static final <T> TimeResult<T> time(final Supplier<T> f) throws Exception {
-        final double start = time();
+        final double start = TorqueTime.live();
         final T result = f.get();
-        return new TimeResult<>(result, (time() - start) / 1000.);
+        return new TimeResult<>(result, (TorqueTime.live() - start) / 1000.);
     }
 
     /**
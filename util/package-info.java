@@ -4,7 +4,10 @@
 
  * - Static utility classes
  *   - TorqueLogging (WIP logging utils)
+ *   - TorqueClock (Injectable time sources)
+ *   - TorqueDeployCache (Shared deploy file resources)
  *   - TorqueMath (Math functions)
+ *   - TorqueTime (Shared per-cycle timestamp)
  *   - TorqueUtil (Misc. functions)
  * - Random classes that need to be deprecated
  *   - GenericController (going to be replaced)